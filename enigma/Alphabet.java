@@ -1,5 +1,9 @@
 package enigma;
 
+import java.util.Arrays;
+
+import static enigma.EnigmaException.*;
+
 /** An alphabet of encodable characters.  Provides a mapping from characters
  *  to and from indices into the alphabet.
  *  @author AldrinSembrana
@@ -10,6 +14,44 @@ class Alphabet {
      *  K (numbering from 0). No character may be duplicated. */
     Alphabet(String chars) {
         _chars = chars;
+        _charArr = chars.toCharArray();
+        char lo = Character.MAX_VALUE, hi = Character.MIN_VALUE;
+        for (char ch : _charArr) {
+            lo = (char) Math.min(lo, ch);
+            hi = (char) Math.max(hi, ch);
+        }
+        if (_charArr.length == 0) {
+            _base = 0;
+            _dense = new int[0];
+            _sorted = null;
+            _sortedIndex = null;
+        } else if (hi - lo <= MAX_DENSE_SPAN) {
+            _base = lo;
+            _dense = new int[hi - lo + 1];
+            Arrays.fill(_dense, -1);
+            for (int i = 0; i < _charArr.length; i += 1) {
+                if (_dense[_charArr[i] - lo] != -1) {
+                    throw error("duplicate character '%c' in alphabet",
+                                _charArr[i]);
+                }
+                _dense[_charArr[i] - lo] = i;
+            }
+            _sorted = null;
+            _sortedIndex = null;
+        } else {
+            _base = 0;
+            _dense = null;
+            _sorted = _charArr.clone();
+            Arrays.sort(_sorted);
+            _sortedIndex = new int[_sorted.length];
+            for (int i = 0; i < _sorted.length; i += 1) {
+                if (i > 0 && _sorted[i] == _sorted[i - 1]) {
+                    throw error("duplicate character '%c' in alphabet",
+                                _sorted[i]);
+                }
+                _sortedIndex[i] = chars.indexOf(_sorted[i]);
+            }
+        }
     }
 
     /** A default alphabet of all upper-case characters. */
@@ -19,27 +61,76 @@ class Alphabet {
 
     /** Returns the size of the alphabet. */
     int size() {
-        return _chars.length();
+        return _charArr.length;
     }
 
     /** Returns true if CH is in this alphabet. */
     boolean contains(char ch) {
-        return _chars.contains("" + ch);
+        return toInt(ch) >= 0;
     }
 
     /** Returns character number INDEX in the alphabet, where
      *  0 <= INDEX < size(). */
     char toChar(int index) {
-        return _chars.charAt(index);
+        return _charArr[index];
     }
 
     /** Returns the index of character CH which must be in
-     *  the alphabet. This is the inverse of toChar(). */
+     *  the alphabet. This is the inverse of toChar(). Returns -1 if
+     *  CH is not in the alphabet. */
     int toInt(char ch) {
-        return _chars.indexOf(ch);
+        if (_dense != null) {
+            int k = ch - _base;
+            if (k < 0 || k >= _dense.length) {
+                return -1;
+            }
+            return _dense[k];
+        }
+        int k = Arrays.binarySearch(_sorted, ch);
+        return k < 0 ? -1 : _sortedIndex[k];
+    }
+
+    /** Returns the indices of the characters of TEXT, all of which must
+     *  be in the alphabet. */
+    int[] toInts(String text) {
+        int[] result = new int[text.length()];
+        for (int i = 0; i < result.length; i += 1) {
+            result[i] = toInt(text.charAt(i));
+            if (result[i] < 0) {
+                throw error("'%c' is not in the alphabet", text.charAt(i));
+            }
+        }
+        return result;
+    }
+
+    /** Returns the characters of this alphabet, in index order. */
+    String chars() {
+        return _chars;
     }
 
-    /** Additional Fields. */
-    private String _chars;
+    /** Widest range of character codes (highest minus lowest) for
+     *  which a dense lookup table is used.  Sparser alphabets fall back
+     *  to binary search over a sorted copy. */
+    static final int MAX_DENSE_SPAN = 1 << 12;
+
+    /** The characters of this alphabet, as given. */
+    private final String _chars;
+
+    /** The characters of this alphabet, indexed by their numbers. */
+    private final char[] _charArr;
+
+    /** Lowest character code covered by _dense. */
+    private final char _base;
+
+    /** When non-null, maps CH - _base to the index of CH, or to -1 if
+     *  CH is not in the alphabet. */
+    private final int[] _dense;
+
+    /** When _dense is null, the characters of the alphabet in
+     *  ascending order. */
+    private final char[] _sorted;
+
+    /** Index in this alphabet of each character of _sorted. */
+    private final int[] _sortedIndex;
 
 }
@@ -47,4 +47,22 @@ public class AlphabetTest {
         assertEquals(0, reverse.toInt('Z'));
         assertNotEquals(25, reverse.toInt('Z'));
     }
+
+    @Test
+    public void testSparseAlphabet() {
+        Alphabet sparse = new Alphabet("A\u4e2d\uffefz0");
+        assertEquals(5, sparse.size());
+        assertEquals(1, sparse.toInt('\u4e2d'));
+        assertEquals(2, sparse.toInt('\uffef'));
+        assertEquals(4, sparse.toInt('0'));
+        assertEquals('z', sparse.toChar(sparse.toInt('z')));
+        assertFalse(sparse.contains('B'));
+        assertEquals(-1, sparse.toInt('\u4e2e'));
+        assertEquals(-1, new Alphabet().toInt('a'));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testDuplicateChars() {
+        new Alphabet("ABCA");
+    }
 }
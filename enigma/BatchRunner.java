@@ -0,0 +1,263 @@
+package enigma;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static enigma.EnigmaException.*;
+
+/** Runs many conversion jobs, each a configuration, an input file and
+ *  optionally an output file and a file of expected output, in one JVM
+ *  on a pool of worker threads.  Each configuration is read once, however
+ *  many jobs use it.
+ *
+ *  Jobs come from manifests, whose non-blank lines (other than those
+ *  starting with '#') have the form
+ *      CONFIG INPUT [OUTPUT [EXPECTED]]
+ *  with paths relative to the manifest's directory.  OUTPUT "-" discards
+ *  the output; EXPECTED "ERROR" means that the job should fail.  A line
+ *  may instead hold a single input file or a glob such as correct/*.in,
+ *  each of whose matches F.in becomes a job as in testing/test-correct:
+ *  its configuration is F.conf or else default.conf in its directory,
+ *  and its expected output is F.out, if that exists.
+ *  @author AldrinSembrana
+ */
+class BatchRunner {
+
+    /** Job result: output matched the expected output, or an expected
+     *  error occurred. */
+    static final String PASS = "PASS";
+    /** Job result: output differed from the expected output. */
+    static final String FAIL = "FAIL";
+    /** Job result: the job failed unexpectedly. */
+    static final String ERROR = "ERROR";
+    /** Job result: the job finished, with nothing to check. */
+    static final String DONE = "DONE";
+
+    /** A runner that runs jobs on WORKERS > 0 threads. */
+    BatchRunner(int workers) {
+        if (workers <= 0) {
+            throw error("need at least one worker");
+        }
+        _workers = workers;
+    }
+
+    /** Add the jobs listed in the manifest file MANIFEST. */
+    void addManifest(Path manifest) {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(manifest, Charset.defaultCharset());
+        } catch (IOException excp) {
+            throw error("could not read manifest %s", manifest);
+        }
+        Path dir = manifest.toAbsolutePath().getParent();
+        for (String line : lines) {
+            String[] fields = line.trim().split("\\s+");
+            if (fields[0].isEmpty() || fields[0].startsWith("#")) {
+                continue;
+            } else if (fields.length == 1) {
+                addInputs(dir, fields[0]);
+            } else if (fields.length > 4) {
+                throw error("bad manifest line: %s", line);
+            } else {
+                Path output = fields.length < 3 || fields[2].equals("-")
+                    ? null : dir.resolve(fields[2]);
+                Path expected = fields.length < 4
+                    || fields[3].equals(ERROR) ? null : dir.resolve(fields[3]);
+                _jobs.add(new Job(dir.resolve(fields[0]),
+                                  dir.resolve(fields[1]), output, expected,
+                                  fields.length == 4
+                                  && fields[3].equals(ERROR)));
+            }
+        }
+    }
+
+    /** Add a job for each input file matching PATTERN, a file name or a
+     *  glob over the names in one directory, relative to DIR, following
+     *  the conventions of testing/test-correct. */
+    void addInputs(Path dir, String pattern) {
+        Path full = dir.resolve(pattern);
+        Path parent = full.getParent();
+        String glob = full.getFileName().toString();
+        ArrayList<Path> inputs = new ArrayList<>();
+        try (DirectoryStream<Path> matches =
+                 Files.newDirectoryStream(parent, glob)) {
+            for (Path input : matches) {
+                inputs.add(input);
+            }
+        } catch (IOException excp) {
+            throw error("could not list %s", full);
+        }
+        if (inputs.isEmpty()) {
+            throw error("no files match %s", full);
+        }
+        inputs.sort(null);
+        for (Path input : inputs) {
+            String base = input.getFileName().toString()
+                .replaceFirst("\\.in$", "");
+            Path config = input.resolveSibling(base + ".conf");
+            if (!Files.exists(config)) {
+                config = input.resolveSibling("default.conf");
+            }
+            Path expected = input.resolveSibling(base + ".out");
+            _jobs.add(new Job(config, input, null,
+                              Files.exists(expected) ? expected : null,
+                              false));
+        }
+    }
+
+    /** Run all my jobs, writing a line for each, in the order they were
+     *  added, and then a summary, to REPORT.  Return the number of jobs
+     *  that did not pass or finish. */
+    int run(PrintStream report) {
+        ExecutorService pool = Executors.newFixedThreadPool(_workers, task -> {
+            Thread thread = new Thread(task, "enigma-batch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long start = System.nanoTime();
+        int failures = 0, passed = 0, done = 0;
+        try {
+            ArrayList<Future<Job>> results = new ArrayList<>();
+            for (Job job : _jobs) {
+                results.add(pool.submit(() -> run(job)));
+            }
+            for (Future<Job> result : results) {
+                Job job = result.get();
+                report.printf("%-5s %9.1f ms  %s%s%n", job._status,
+                              job._nanos / 1e6, job._input,
+                              job._message == null ? ""
+                              : ": " + job._message);
+                switch (job._status) {
+                case PASS:
+                    passed += 1;
+                    break;
+                case DONE:
+                    done += 1;
+                    break;
+                default:
+                    failures += 1;
+                    break;
+                }
+            }
+        } catch (InterruptedException | ExecutionException excp) {
+            throw error("batch interrupted: %s", excp);
+        } finally {
+            pool.shutdownNow();
+        }
+        report.printf("%d jobs: %d passed, %d failed, %d unchecked "
+                      + "in %.1f ms on %d workers%n",
+                      _jobs.size(), passed, failures, done,
+                      (System.nanoTime() - start) / 1e6, _workers);
+        return failures;
+    }
+
+    /** Carry out JOB, recording its status and time in it.  Returns
+     *  JOB. */
+    private Job run(Job job) {
+        long start = System.nanoTime();
+        try {
+            Catalog catalog = catalog(job._config);
+            ByteArrayOutputStream captured = new ByteArrayOutputStream();
+            try (InputStream in = Files.newInputStream(job._input);
+                 OutputStream out = job._output == null
+                     ? OutputStream.nullOutputStream()
+                     : Files.newOutputStream(job._output)) {
+                OutputStream sink = job._expected == null ? out : captured;
+                new Main(in, sink).process(catalog);
+                if (job._expected != null) {
+                    captured.writeTo(out);
+                }
+            }
+            if (job._expectError) {
+                job._status = FAIL;
+                job._message = "expected an error";
+            } else if (job._expected == null) {
+                job._status = DONE;
+            } else if (canonical(new String(captured.toByteArray(),
+                                            Charset.defaultCharset()))
+                       .equals(canonical(Files.readString(
+                           job._expected, Charset.defaultCharset())))) {
+                job._status = PASS;
+            } else {
+                job._status = FAIL;
+                job._message = "output differs from " + job._expected;
+            }
+        } catch (EnigmaException | IOException excp) {
+            job._status = job._expectError ? PASS : ERROR;
+            job._message = excp.getMessage();
+        }
+        job._nanos = System.nanoTime() - start;
+        return job;
+    }
+
+    /** Return the catalog for configuration file CONFIG, reading it only
+     *  the first time it is asked for. */
+    private Catalog catalog(Path config) {
+        return _catalogs.computeIfAbsent(config.normalize(),
+            path -> Main.loadCatalog(path.toString()));
+    }
+
+    /** Return TEXT in the form in which testing/compfiles.py compares
+     *  outputs: without carriage returns, trailing blanks or runs of
+     *  blanks. */
+    static String canonical(String text) {
+        return text.replace("\r", "").replaceAll("(?m) +$", "")
+            .replaceAll("  +", " ").stripTrailing();
+    }
+
+    /** One conversion job and, once run, its outcome. */
+    private static class Job {
+        /** A job converting INPUT with configuration CONFIG, writing the
+         *  result to OUTPUT (or nowhere, if null) and comparing it with
+         *  EXPECTED (if not null), or expecting failure if EXPECTERROR. */
+        Job(Path config, Path input, Path output, Path expected,
+            boolean expectError) {
+            _config = config;
+            _input = input;
+            _output = output;
+            _expected = expected;
+            _expectError = expectError;
+        }
+
+        /** Configuration file. */
+        private final Path _config;
+        /** Input file. */
+        private final Path _input;
+        /** Output file, or null. */
+        private final Path _output;
+        /** Expected output file, or null. */
+        private final Path _expected;
+        /** True iff the job should fail. */
+        private final boolean _expectError;
+        /** One of PASS, FAIL, ERROR, DONE, once run. */
+        private String _status;
+        /** Explanation of _status, or null. */
+        private String _message;
+        /** Time taken to run, in nanoseconds. */
+        private long _nanos;
+    }
+
+    /** Number of worker threads. */
+    private final int _workers;
+
+    /** Jobs to run, in order. */
+    private final ArrayList<Job> _jobs = new ArrayList<>();
+
+    /** Catalogs read so far, indexed by configuration file. */
+    private final ConcurrentHashMap<Path, Catalog> _catalogs =
+        new ConcurrentHashMap<>();
+}
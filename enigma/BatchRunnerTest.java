@@ -0,0 +1,98 @@
+package enigma;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the BatchRunner class.
+ *  @author AldrinSembrana
+ */
+public class BatchRunnerTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    private static final String INPUT =
+        "* B Beta III IV I AXLE (HQ) (EX) (IP) (TR) (BY)\n"
+        + "FROM HIS SHOULDER HIAWATHA\n";
+
+    private static final String OUTPUT = "QVPQS OKOIL PUBKJ ZPISF XDW\n";
+
+    /** Write TEXT to the file NAME in DIR. */
+    private static void write(Path dir, String name, String text)
+        throws IOException {
+        Files.writeString(dir.resolve(name), text);
+    }
+
+    /** Delete DIR and everything in it. */
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : (Iterable<Path>) files
+                     .sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testManifest() throws IOException {
+        Path dir = Files.createTempDirectory("enigma");
+        try {
+            Files.createDirectory(dir.resolve("cases"));
+            write(dir, "default.conf", NAVAL_CONFIG);
+            write(dir, "cases/default.conf", NAVAL_CONFIG);
+            write(dir, "cases/a.in", INPUT);
+            write(dir, "cases/a.out", OUTPUT);
+            write(dir, "cases/b.in", INPUT);
+            write(dir, "cases/b.out", "WRONG\n");
+            write(dir, "cases/c.in", INPUT);
+            write(dir, "bad.in", "HELLO\n");
+            write(dir, "manifest",
+                  "# a comment\n\n"
+                  + "default.conf cases/a.in result.txt cases/a.out\n"
+                  + "default.conf bad.in - ERROR\n"
+                  + "default.conf bad.in\n"
+                  + "cases/*.in\n");
+            BatchRunner runner = new BatchRunner(2);
+            runner.addManifest(dir.resolve("manifest"));
+            ByteArrayOutputStream report = new ByteArrayOutputStream();
+            assertEquals(2, runner.run(new PrintStream(report, true)));
+            assertEquals(OUTPUT.replace("\n", System.lineSeparator()),
+                         Files.readString(dir.resolve("result.txt")));
+            String[] lines = report.toString().split("\\R");
+            assertEquals(7, lines.length);
+            String[] expected = { "PASS", "PASS", "ERROR", "PASS", "FAIL",
+                                  "DONE" };
+            for (int i = 0; i < expected.length; i += 1) {
+                assertTrue(lines[i], lines[i].startsWith(expected[i] + " "));
+            }
+            assertTrue(lines[2].endsWith("NO SETTING"));
+            assertTrue(lines[6].startsWith("6 jobs: 3 passed, 2 failed, "
+                                           + "1 unchecked"));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void testCanonical() {
+        assertEquals(BatchRunner.canonical("ABCDE FG\r\n"),
+                     BatchRunner.canonical("ABCDE  FG  \n\n"));
+    }
+}
@@ -0,0 +1,417 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static enigma.EnigmaException.*;
+
+/** A search in the manner of the Turing-Welchman Bombe for rotor orders
+ *  and settings, and the plugboard pairs they imply, at which a machine
+ *  could turn a stretch of ciphertext into a known crib.
+ *
+ *  The crib and the ciphertext under it form a menu: a graph on the
+ *  letters of the alphabet with an edge between the plain and cipher
+ *  letter at each crib position I.  If the plugboard P is unknown, then
+ *  at each such edge (A, B) we know only that P(B) = S_I(P(A)), where
+ *  S_I is the scrambler (the rotors and reflector, without the
+ *  plugboard) at position I.  For each order and setting, the search
+ *  assumes in turn each partner X for the most connected letter T of
+ *  the menu and propagates the consequences through the menu and
+ *  through the symmetry of the plugboard (if P(A) = B then P(B) = A).
+ *  Hypotheses are sets of "P(L) = Y" facts held as bitsets over the
+ *  alphabet, one per letter L; a hypothesis fails as soon as some letter
+ *  has two partners.  An order and setting at which some hypothesis
+ *  survives is a stop, reported with the plugboard pairs implied by each
+ *  surviving hypothesis: short cribs whose menus have few loops often
+ *  leave several, only one of which is the true plugboard.  Only the
+ *  part of the menu connected to T is used, so cribs whose menus have
+ *  loops give fewest false stops.
+ *
+ *  Orders and ranges of settings are divided among the workers of a
+ *  ForkJoinPool, each with its own copy of the order's CompiledMachine
+ *  and its own preallocated scrambler tables, bitsets and work queue.
+ *  Scrambler outputs are computed only when propagation needs them, as
+ *  most hypotheses fail after a few steps.
+ *  @author AldrinSembrana
+ */
+class BombeSearch {
+
+    /** A search over the rotor orders ORDERS, each as accepted by
+     *  Machine.insertRotors, of CATALOG, for settings at which converting
+     *  CIPHERTEXT could yield CRIB from position OFFSET onwards.  All
+     *  characters of CIPHERTEXT and CRIB must be in the alphabet. */
+    BombeSearch(Catalog catalog, List<String[]> orders, String ciphertext,
+                String crib, int offset) {
+        Alphabet alpha = catalog.alphabet();
+        if (crib.isEmpty()) {
+            throw error("empty crib");
+        } else if (offset < 0 || offset + crib.length()
+                   > ciphertext.length()) {
+            throw error("crib does not fit in the ciphertext");
+        }
+        _alphabet = alpha;
+        _size = alpha.size();
+        _words = (_size + Long.SIZE - 1) / Long.SIZE;
+        _offset = offset;
+        _length = crib.length();
+        _numSlots = catalog.numRotors();
+        _space = new SettingSpace(alpha, _numSlots);
+        _orders = new ArrayList<>(orders);
+        _templates = new CompiledMachine[_orders.size()];
+        Permutation noPlugs = new Permutation("", alpha);
+        for (int i = 0; i < _templates.length; i += 1) {
+            Machine mach = catalog.newMachine();
+            mach.insertRotors(_orders.get(i));
+            mach.setPlugboard(noPlugs);
+            _templates[i] = mach.compile();
+        }
+        int[] plain = alpha.toInts(crib);
+        int[] cipher = alpha.toInts(ciphertext.substring(offset,
+                                                         offset + _length));
+        int[] degree = new int[_size];
+        for (int i = 0; i < _length; i += 1) {
+            if (plain[i] == cipher[i]) {
+                throw error("crib letter %c cannot encrypt to itself at %d",
+                            crib.charAt(i), offset + i);
+            }
+            degree[plain[i]] += 1;
+            degree[cipher[i]] += 1;
+        }
+        _edgeStart = new int[_size + 1];
+        for (int c = 0; c < _size; c += 1) {
+            _edgeStart[c + 1] = _edgeStart[c] + degree[c];
+        }
+        _edgeLetter = new int[2 * _length];
+        _edgePosition = new int[2 * _length];
+        int[] fill = _edgeStart.clone();
+        int test = 0;
+        for (int i = 0; i < _length; i += 1) {
+            addEdge(fill, plain[i], cipher[i], i);
+            addEdge(fill, cipher[i], plain[i], i);
+        }
+        for (int c = 0; c < _size; c += 1) {
+            if (degree[c] > degree[test]) {
+                test = c;
+            }
+        }
+        _test = test;
+    }
+
+    /** Record in the menu that letter A meets letter B at crib position
+     *  I, using FILL to find A's next free edge. */
+    private void addEdge(int[] fill, int a, int b, int i) {
+        _edgeLetter[fill[a]] = b;
+        _edgePosition[fill[a]] = i;
+        fill[a] += 1;
+    }
+
+    /** Return the number of (order, setting) pairs to be tried. */
+    long count() {
+        return _space.count() * _templates.length;
+    }
+
+    /** Return the stops, ordered by rotor order and then setting,
+     *  searching on POOL. */
+    List<Stop> search(ForkJoinPool pool) {
+        ConcurrentLinkedQueue<Stop> found = new ConcurrentLinkedQueue<>();
+        pool.invoke(new Part(0, _templates.length, 0, _space.count(),
+                             found));
+        ArrayList<Stop> result = new ArrayList<>(found);
+        result.sort((x, y) -> x._order != y._order
+                    ? Integer.compare(x._order, y._order)
+                    : Long.compare(x._index, y._index));
+        return result;
+    }
+
+    /** Return the stops, as for search(POOL), searching on the common
+     *  pool. */
+    List<Stop> search() {
+        return search(ForkJoinPool.commonPool());
+    }
+
+    /** A rotor order and setting at which the crib may match. */
+    final class Stop {
+        /** The stop at order #ORDER and setting #INDEX, whose surviving
+         *  hypotheses imply the plugboard pairs given, in cycle notation,
+         *  by PLUGBOARDS. */
+        Stop(int order, long index, List<String> plugboards) {
+            _order = order;
+            _index = index;
+            _plugboards = plugboards;
+        }
+
+        /** Return the rotor names, as accepted by
+         *  Machine.insertRotors.  The array must not be modified. */
+        String[] rotors() {
+            return _orders.get(_order);
+        }
+
+        /** Return the setting, as accepted by Machine.setRotors. */
+        String setting() {
+            return _space.toString(_index);
+        }
+
+        /** Return the plugboard pairs implied by each hypothesis that
+         *  survived, in cycle notation, in the order of the test letter's
+         *  assumed partner.  Letters not reached by the menu are left
+         *  out. */
+        List<String> plugboards() {
+            return _plugboards;
+        }
+
+        @Override
+        public String toString() {
+            return String.join(" ", rotors()) + " " + setting() + " "
+                + String.join(" | ", _plugboards);
+        }
+
+        /** Index of the rotor order. */
+        private final int _order;
+        /** Number of the setting. */
+        private final long _index;
+        /** Plugboard pairs implied by each surviving hypothesis. */
+        private final List<String> _plugboards;
+    }
+
+    /** The scrambler tables, bitsets and queue one worker uses. */
+    private final class Worker {
+        /** Prepare to test MACH at its current setting: record the
+         *  settings of its rotors at each crib position, and forget the
+         *  scrambler outputs computed for the previous setting. */
+        void prepare(CompiledMachine mach) {
+            _mach = mach;
+            for (int i = 0; i < _offset; i += 1) {
+                mach.advance();
+            }
+            for (int i = 0; i < _length; i += 1) {
+                mach.advance();
+                for (int k = 0; k < _positions[i].length; k += 1) {
+                    _positions[i][k] = mach.setting(k);
+                }
+            }
+            _epoch += 1;
+            if (_epoch == 0) {
+                Arrays.fill(_stamp, 0);
+                _epoch = 1;
+            }
+        }
+
+        /** Return S_I(C), the scrambler at crib position I applied to C,
+         *  computing it only the first time it is asked for at the
+         *  current setting. */
+        private int scrambler(int i, int c) {
+            int k = i * _size + c;
+            if (_stamp[k] != _epoch) {
+                _scrambler[k] = _mach.scramble(c, _positions[i]);
+                _stamp[k] = _epoch;
+            }
+            return _scrambler[k];
+        }
+
+        /** Return the plugboards implied by the surviving hypotheses, or
+         *  null if every hypothesis fails, using the current scrambler
+         *  tables. */
+        List<String> test() {
+            List<String> result = null;
+            for (int x = 0; x < _size; x += 1) {
+                if (propagate(x)) {
+                    if (result == null) {
+                        result = new ArrayList<>();
+                    }
+                    result.add(plugboard());
+                }
+            }
+            return result;
+        }
+
+        /** Clear my bitsets and deduce what follows from P(T) = X, where
+         *  T is the test letter.  Return false iff some letter is forced
+         *  to have two partners. */
+        private boolean propagate(int x) {
+            for (int i = 0; i < _live.length; i += 1) {
+                _live[i] = 0;
+            }
+            _head = _tail = 0;
+            if (!assume(_test, x)) {
+                return false;
+            }
+            while (_head < _tail) {
+                int letter = _queue[_head], partner = _queue[_head + 1];
+                _head += 2;
+                if (!assume(partner, letter)) {
+                    return false;
+                }
+                for (int e = _edgeStart[letter]; e < _edgeStart[letter + 1];
+                     e += 1) {
+                    int next = scrambler(_edgePosition[e], partner);
+                    if (!assume(_edgeLetter[e], next)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /** Record that P(LETTER) = PARTNER, queueing it if new.  Return
+         *  false iff LETTER already has another partner. */
+        private boolean assume(int letter, int partner) {
+            if (get(_live, letter, partner)) {
+                return true;
+            }
+            for (int w = 0; w < _words; w += 1) {
+                if (_live[letter * _words + w] != 0) {
+                    return false;
+                }
+            }
+            _live[letter * _words + (partner >>> LOG_WORD)] |= 1L << partner;
+            _queue[_tail] = letter;
+            _queue[_tail + 1] = partner;
+            _tail += 2;
+            return true;
+        }
+
+        /** Return the plugboard pairs in my bitsets, in cycle
+         *  notation. */
+        private String plugboard() {
+            StringBuilder result = new StringBuilder();
+            for (int c = 0; c < _size; c += 1) {
+                for (int d = c + 1; d < _size; d += 1) {
+                    if (get(_live, c, d)) {
+                        if (result.length() > 0) {
+                            result.append(' ');
+                        }
+                        result.append('(').append(_alphabet.toChar(c))
+                            .append(_alphabet.toChar(d)).append(')');
+                    }
+                }
+            }
+            return result.toString();
+        }
+
+        /** Return true iff bit Y of the bitset for letter L in BITS is
+         *  set. */
+        private boolean get(long[] bits, int l, int y) {
+            return (bits[l * _words + (y >>> LOG_WORD)] & (1L << y)) != 0;
+        }
+
+        /** The machine being tested. */
+        private CompiledMachine _mach;
+        /** _positions[I] holds the settings of the rotors at crib
+         *  position I. */
+        private final int[][] _positions = new int[_length][_numSlots];
+        /** _scrambler[I * size + C] is S_I(C), if computed. */
+        private final int[] _scrambler = new int[_length * _size];
+        /** _stamp[I * size + C] is _epoch iff _scrambler[I * size + C]
+         *  has been computed for the current setting. */
+        private final int[] _stamp = new int[_length * _size];
+        /** Number of the current setting, modulo 2**32, skipping 0. */
+        private int _epoch;
+        /** The bitsets of partners of each letter, _words longs each. */
+        private final long[] _live = new long[_size * _words];
+        /** Facts to propagate, as (letter, partner) pairs. */
+        private final int[] _queue = new int[2 * _size * _size];
+        /** Bounds of the unprocessed part of _queue. */
+        private int _head, _tail;
+    }
+
+    /** A fork/join task trying the settings in a range of every order
+     *  in a range. */
+    private final class Part extends RecursiveAction {
+        /** A task trying settings LO .. HI-1 of orders FIRST .. LAST-1,
+         *  adding stops to FOUND. */
+        Part(int first, int last, long lo, long hi,
+             ConcurrentLinkedQueue<Stop> found) {
+            _first = first;
+            _last = last;
+            _lo = lo;
+            _hi = hi;
+            _found = found;
+        }
+
+        @Override
+        protected void compute() {
+            if (_first == _last) {
+                return;
+            } else if (_last - _first > 1) {
+                int mid = (_first + _last) / 2;
+                invokeAll(new Part(_first, mid, _lo, _hi, _found),
+                          new Part(mid, _last, _lo, _hi, _found));
+            } else if (_hi - _lo > LEAF_SIZE) {
+                long mid = _lo + (_hi - _lo) / 2;
+                invokeAll(new Part(_first, _last, _lo, mid, _found),
+                          new Part(_first, _last, mid, _hi, _found));
+            } else {
+                Worker worker = new Worker();
+                CompiledMachine mach = _templates[_first].copy();
+                int[] positions = _space.positions(_lo);
+                for (long index = _lo; index < _hi; index += 1) {
+                    mach.setAll(positions);
+                    worker.prepare(mach);
+                    List<String> plugboards = worker.test();
+                    if (plugboards != null) {
+                        _found.add(new Stop(_first, index, plugboards));
+                    }
+                    _space.next(positions);
+                }
+            }
+        }
+
+        /** Bounds of the orders I try. */
+        private final int _first, _last;
+        /** Bounds of the settings I try. */
+        private final long _lo, _hi;
+        /** Where stops go. */
+        private final ConcurrentLinkedQueue<Stop> _found;
+    }
+
+    /** The largest number of settings tried by one task. */
+    static final int LEAF_SIZE = 1 << 10;
+
+    /** Base-2 logarithm of Long.SIZE. */
+    private static final int LOG_WORD = 6;
+
+    /** The alphabet. */
+    private final Alphabet _alphabet;
+
+    /** Size of the alphabet. */
+    private final int _size;
+
+    /** Number of rotor slots. */
+    private final int _numSlots;
+
+    /** Number of longs in each letter's bitset. */
+    private final int _words;
+
+    /** Position of the crib in the ciphertext. */
+    private final int _offset;
+
+    /** Length of the crib. */
+    private final int _length;
+
+    /** The letter whose partner is hypothesized: the one with most
+     *  edges in the menu. */
+    private final int _test;
+
+    /** The menu's edges from letter C are numbered _edgeStart[C] ..
+     *  _edgeStart[C+1]-1. */
+    private final int[] _edgeStart;
+
+    /** The letter at the far end of each edge. */
+    private final int[] _edgeLetter;
+
+    /** The crib position of each edge. */
+    private final int[] _edgePosition;
+
+    /** The settings of each order. */
+    private final SettingSpace _space;
+
+    /** The rotor orders searched. */
+    private final List<String[]> _orders;
+
+    /** A compiled machine without plugboard for each order. */
+    private final CompiledMachine[] _templates;
+}
@@ -0,0 +1,118 @@
+package enigma;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the BombeSearch class.
+ *  @author AldrinSembrana
+ */
+public class BombeSearchTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    private static final String[] ROTORS = { "B", "III", "IV", "I" };
+
+    private static final String PLUGBOARD =
+        "(AQ) (BZ) (CX) (EY) (HN) (LT)";
+
+    /** Return a machine with 4 slots and 3 pawls using the naval
+     *  rotors. */
+    private static Catalog catalog() {
+        return new Catalog(UPPER, 4, 3, navalRotors());
+    }
+
+    /** Return true iff every pair of PLUGBOARD, in cycle notation, is a
+     *  pair of the true plugboard. */
+    private static boolean consistent(String plugboard) {
+        for (String pair : plugboard.split(" ")) {
+            if (!pair.isEmpty() && !PLUGBOARD.contains(pair)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testFindsSettingAndPlugs() {
+        Catalog catalog = catalog();
+        Machine mach = catalog.newMachine();
+        mach.insertRotors(ROTORS);
+        mach.setRotors("KQD");
+        mach.setPlugboard(new Permutation(PLUGBOARD, UPPER));
+        String plain = "XXWETTERVORHERSAGEFUERDIENORDSEEBUCHT";
+        String cipher = mach.convert(plain);
+        BombeSearch search = new BombeSearch(
+            catalog, List.of(ROTORS, new String[] { "C", "III", "IV", "I" }),
+            cipher, plain.substring(2), 2);
+        assertEquals(2 * 26 * 26 * 26, search.count());
+        List<BombeSearch.Stop> stops = search.search(new ForkJoinPool(2));
+        assertTrue(stops.size() < 100);
+        BombeSearch.Stop found = null;
+        for (BombeSearch.Stop stop : stops) {
+            if (Arrays.equals(ROTORS, stop.rotors())
+                && stop.setting().equals("KQD")) {
+                found = stop;
+            }
+        }
+        assertNotNull(found);
+        assertEquals(1, found.plugboards().size());
+        String plugboard = found.plugboards().get(0);
+        assertFalse(plugboard.isEmpty());
+        assertTrue(consistent(plugboard));
+        mach.setRotors("KQD");
+        mach.setPlugboard(new Permutation(plugboard, UPPER));
+        String partial = mach.convert(cipher);
+        int agree = 0;
+        for (int i = 0; i < plain.length(); i += 1) {
+            agree += partial.charAt(i) == plain.charAt(i) ? 1 : 0;
+        }
+        assertTrue(agree > plain.length() / 2);
+    }
+
+    @Test
+    public void testShortCrib() {
+        Catalog catalog = catalog();
+        Machine mach = catalog.newMachine();
+        mach.insertRotors(ROTORS);
+        mach.setRotors("BRT");
+        mach.setPlugboard(new Permutation(PLUGBOARD, UPPER));
+        String plain = "KEINEBES";
+        String cipher = mach.convert(plain);
+        List<BombeSearch.Stop> stops = new BombeSearch(
+            catalog, List.<String[]>of(ROTORS), cipher, plain, 0).search();
+        BombeSearch.Stop found = null;
+        for (BombeSearch.Stop stop : stops) {
+            if (stop.setting().equals("BRT")) {
+                found = stop;
+            }
+        }
+        assertNotNull(found);
+        assertTrue(found.plugboards().size() > 1);
+        assertTrue(found.plugboards().contains("(BZ) (EY) (HN) (LT)"));
+        int consistent = 0;
+        for (String plugboard : found.plugboards()) {
+            consistent += consistent(plugboard) ? 1 : 0;
+        }
+        assertEquals(1, consistent);
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testSelfEncryption() {
+        new BombeSearch(catalog(), List.<String[]>of(ROTORS), "ABCDE", "XXCYY",
+                        0);
+    }
+}
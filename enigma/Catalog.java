@@ -0,0 +1,83 @@
+package enigma;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static enigma.EnigmaException.*;
+
+/** The immutable description of a family of enigma machines: an
+ *  alphabet, the number of rotor slots and pawls, and the rotors
+ *  available to fill the slots.  Any number of Machines may share one
+ *  Catalog; each keeps its own rotor settings, so creating a Machine
+ *  from a Catalog parses nothing and copies no wiring.  The settings of
+ *  the rotors it is given are fixed (see Rotor.share()), so that they
+ *  hold no mutable state.
+ *  @author AldrinSembrana
+ */
+class Catalog {
+
+    /** A catalog for machines with alphabet ALPHA, 1 < NUMROTORS rotor
+     *  slots, and 0 < PAWLS < NUMROTORS pawls, whose available rotors
+     *  are ALLROTORS. */
+    Catalog(Alphabet alpha, int numRotors, int pawls,
+            Collection<Rotor> allRotors) {
+        _alphabet = alpha;
+        _numRotors = numRotors;
+        _pawls = pawls;
+        LinkedHashMap<String, Rotor> rotors = new LinkedHashMap<>();
+        for (Rotor rotor : allRotors) {
+            if (rotors.put(rotor.name(), rotor) != null) {
+                throw error("rotor %s defined more than once", rotor.name());
+            }
+        }
+        for (Rotor rotor : rotors.values()) {
+            rotor.share();
+        }
+        _rotors = Collections.unmodifiableMap(rotors);
+    }
+
+    /** Return the common alphabet of my rotors. */
+    Alphabet alphabet() {
+        return _alphabet;
+    }
+
+    /** Return the number of rotor slots in my machines. */
+    int numRotors() {
+        return _numRotors;
+    }
+
+    /** Return the number of pawls (and thus rotating rotors) in my
+     *  machines. */
+    int numPawls() {
+        return _pawls;
+    }
+
+    /** Return the rotor named NAME, or null if there is none. */
+    Rotor get(String name) {
+        return _rotors.get(name);
+    }
+
+    /** Return all my rotors, in the order they were given. */
+    Collection<Rotor> rotors() {
+        return _rotors.values();
+    }
+
+    /** Return a new Machine using my rotors, with no rotors inserted. */
+    Machine newMachine() {
+        return new Machine(this);
+    }
+
+    /** Common alphabet of my rotors. */
+    private final Alphabet _alphabet;
+
+    /** Number of rotor slots. */
+    private final int _numRotors;
+
+    /** Number of pawls. */
+    private final int _pawls;
+
+    /** My rotors, indexed by name. */
+    private final Map<String, Rotor> _rotors;
+}
@@ -0,0 +1,158 @@
+package enigma;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+
+import static enigma.EnigmaException.*;
+
+/** Reads and writes Catalogs in a compact binary image, so that a
+ *  configuration need only be parsed and checked once.  An image holds,
+ *  as big-endian values:
+ *      the int MAGIC and the short VERSION;
+ *      the alphabet, as a character count and the characters;
+ *      the number of rotor slots, the number of pawls, and the number
+ *      of rotors;
+ *      for each rotor, its kind ('R', 'F' or 'M') as a byte, its name
+ *      as a count and characters, the forward and inverse tables of its
+ *      permutation as alphabet-size ints each, and its notches as a
+ *      count and characters;
+ *  followed by the CRC-32 of all the preceding bytes, as an int.
+ *  @author AldrinSembrana
+ */
+class CatalogImage {
+
+    /** First four bytes of every image: the byte 0x89 and then "ENC".
+     *  The first byte is not printable (nor valid UTF-8 on its own), so
+     *  no text configuration file starts this way. */
+    static final int MAGIC = 0x89454e43;
+
+    /** Version of the format written by write. */
+    static final short VERSION = 1;
+
+    /** Return true iff IMAGE starts like a catalog image. */
+    static boolean isImage(byte[] image) {
+        return image.length >= Integer.BYTES
+            && ByteBuffer.wrap(image).getInt() == MAGIC;
+    }
+
+    /** Write an image of CATALOG to OUT. */
+    static void write(Catalog catalog, OutputStream out) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        writeString(data, catalog.alphabet().chars());
+        data.writeInt(catalog.numRotors());
+        data.writeInt(catalog.numPawls());
+        data.writeInt(catalog.rotors().size());
+        for (Rotor rotor : catalog.rotors()) {
+            data.writeByte(rotor.reflecting() ? 'R'
+                           : rotor.rotates() ? 'M' : 'F');
+            writeString(data, rotor.name());
+            Permutation perm = rotor.permutation();
+            for (int k : perm.forwardTable()) {
+                data.writeInt(k);
+            }
+            for (int k : perm.inverseTable()) {
+                data.writeInt(k);
+            }
+            writeString(data, rotor.notches());
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        data.writeInt((int) crc.getValue());
+        data.flush();
+        bytes.writeTo(out);
+    }
+
+    /** Return the Catalog whose image is IMAGE.  Throws an
+     *  EnigmaException if IMAGE is damaged or of another version. */
+    static Catalog read(byte[] image) {
+        if (!isImage(image)) {
+            throw error("not a catalog image");
+        } else if (image.length < HEADER + Integer.BYTES) {
+            throw error("catalog image is corrupt");
+        }
+        ByteBuffer data = ByteBuffer.wrap(image);
+        data.getInt();
+        short version = data.getShort();
+        if (version != VERSION) {
+            throw error("unsupported catalog image version %d", version);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(image, 0, image.length - Integer.BYTES);
+        if ((int) crc.getValue()
+            != data.getInt(image.length - Integer.BYTES)) {
+            throw error("catalog image is corrupt");
+        }
+        data.limit(image.length - Integer.BYTES);
+        try {
+            Alphabet alpha = new Alphabet(readString(data));
+            int numRotors = data.getInt();
+            int pawls = data.getInt();
+            int count = data.getInt();
+            ArrayList<Rotor> rotors = new ArrayList<>();
+            for (int i = 0; i < count; i += 1) {
+                rotors.add(readRotor(data, alpha));
+            }
+            if (data.hasRemaining()) {
+                throw error("catalog image is corrupt");
+            }
+            return new Catalog(alpha, numRotors, pawls, rotors);
+        } catch (BufferUnderflowException | IllegalArgumentException excp) {
+            throw error("catalog image is corrupt");
+        }
+    }
+
+    /** Return the rotor over ALPHA described next in DATA. */
+    private static Rotor readRotor(ByteBuffer data, Alphabet alpha) {
+        byte kind = data.get();
+        String name = readString(data);
+        int[] forward = new int[alpha.size()];
+        int[] inverse = new int[alpha.size()];
+        data.asIntBuffer().get(forward);
+        data.position(data.position() + Integer.BYTES * forward.length);
+        data.asIntBuffer().get(inverse);
+        data.position(data.position() + Integer.BYTES * inverse.length);
+        Permutation perm = new Permutation(alpha, forward, inverse);
+        String notches = readString(data);
+        switch (kind) {
+        case 'R':
+            return new Reflector(name, perm);
+        case 'F':
+            return new FixedRotor(name, perm);
+        case 'M':
+            return new MovingRotor(name, perm, notches);
+        default:
+            throw error("catalog image is corrupt");
+        }
+    }
+
+    /** Write the length of S and then its characters to DATA. */
+    private static void writeString(DataOutputStream data, String s)
+        throws IOException {
+        data.writeInt(s.length());
+        data.writeChars(s);
+    }
+
+    /** Return the string written by writeString next in DATA. */
+    private static String readString(ByteBuffer data) {
+        int len = data.getInt();
+        if (len < 0 || len > data.remaining() / Character.BYTES) {
+            throw error("catalog image is corrupt");
+        }
+        char[] chars = new char[len];
+        data.asCharBuffer().get(chars);
+        data.position(data.position() + Character.BYTES * len);
+        return new String(chars);
+    }
+
+    /** Size of the magic number and version. */
+    private static final int HEADER = Integer.BYTES + Short.BYTES;
+}
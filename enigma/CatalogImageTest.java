@@ -0,0 +1,113 @@
+package enigma;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the CatalogImage class.
+ *  @author AldrinSembrana
+ */
+public class CatalogImageTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return the image of CATALOG. */
+    private static byte[] image(Catalog catalog) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CatalogImage.write(catalog, out);
+        return out.toByteArray();
+    }
+
+    /** Return a catalog of the naval rotors. */
+    private static Catalog naval() {
+        return new Catalog(UPPER, 5, 3, navalRotors());
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Catalog original = naval();
+        byte[] image = image(original);
+        assertTrue(CatalogImage.isImage(image));
+        Catalog copy = CatalogImage.read(image);
+        assertEquals(UPPER_STRING, copy.alphabet().chars());
+        assertEquals(5, copy.numRotors());
+        assertEquals(3, copy.numPawls());
+        assertEquals(original.rotors().size(), copy.rotors().size());
+        for (Rotor rotor : original.rotors()) {
+            Rotor other = copy.get(rotor.name());
+            assertEquals(rotor.getClass(), other.getClass());
+            assertEquals(rotor.notches(), other.notches());
+            assertArrayEquals(rotor.permutation().forwardTable(),
+                              other.permutation().forwardTable());
+        }
+        assertEquals("(ALBEVFCYODJWUGNMQTZSKPR) (HIX)",
+                     copy.get("Beta").permutation().cycles());
+
+        String msg = randomText(UPPER_STRING, 2000, new Random(16));
+        String[] rotors = { "C", "Gamma", "VI", "VII", "VIII" };
+        Machine mach1 = original.newMachine();
+        Machine mach2 = copy.newMachine();
+        for (Machine mach : new Machine[] { mach1, mach2 }) {
+            mach.insertRotors(rotors);
+            mach.setRotors("ZMYL");
+            mach.setPlugboard(new Permutation("(QW) (ER)", UPPER));
+        }
+        assertEquals(mach1.convert(msg), mach2.convert(msg));
+    }
+
+    @Test
+    public void testCorruption() throws IOException {
+        byte[] image = image(naval());
+        for (int i = 0; i < image.length; i += 97) {
+            byte[] damaged = image.clone();
+            damaged[i] ^= 0x10;
+            try {
+                CatalogImage.read(damaged);
+                fail("damaged image accepted");
+            } catch (EnigmaException excp) {
+                /* Expected. */
+            }
+        }
+        byte[] truncated = new byte[image.length / 2];
+        System.arraycopy(image, 0, truncated, 0, truncated.length);
+        try {
+            CatalogImage.read(truncated);
+            fail("truncated image accepted");
+        } catch (EnigmaException excp) {
+            /* Expected. */
+        }
+    }
+
+    @Test
+    public void testTextLookingLikeMagic() {
+        String config = "ENICABDFGHJKLMOPQRSTUVWXYZ\n3 1\n"
+            + "R R (EN) (IC) (AB) (DF) (GH) (JK) (LM) (OP) (QR) (ST) (UV)"
+            + " (WX) (YZ)\n"
+            + "F N (EAC)\n"
+            + "M MQ (ENICAB)\n";
+        byte[] bytes = config.getBytes(StandardCharsets.US_ASCII);
+        assertFalse(CatalogImage.isImage(bytes));
+        Catalog catalog = Main.readCatalog(bytes);
+        assertEquals("ENICABDFGHJKLMOPQRSTUVWXYZ", catalog.alphabet().chars());
+        assertEquals(3, catalog.rotors().size());
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testBadTables() {
+        new Permutation(UPPER, new int[26], new int[26]);
+    }
+}
@@ -0,0 +1,177 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+import static enigma.EnigmaException.*;
+
+/** A buffered source of characters decoded from an input stream, one
+ *  large block at a time.  Runs of ASCII bytes are widened directly;
+ *  only the rest goes through a CharsetDecoder.  A MappedInput is
+ *  decoded straight from its mapped windows rather than copied out of
+ *  them first.  Every line terminator recognized by java.util.Scanner
+ *  (\n, \r\n, \r, \u0085, \u2028, \u2029) is read as a single '\n'.
+ *  @author AldrinSembrana
+ */
+class CharSource {
+
+    /** Default number of bytes read at once. */
+    static final int DEFAULT_SIZE = 1 << 16;
+
+    /** A source decoding the contents of IN with CHARSET, reading up to
+     *  SIZE > 0 bytes (or, from a MappedInput, decoding up to SIZE
+     *  characters) at a time. */
+    CharSource(InputStream in, Charset charset, int size) {
+        _in = in;
+        _decoder = charset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        size = Math.max(size, MIN_SIZE);
+        if (in instanceof MappedInput) {
+            _mapped = (MappedInput) in;
+            _bytes = null;
+            _window = ByteBuffer.allocate(0);
+        } else {
+            _mapped = null;
+            _bytes = new byte[size];
+            _window = ByteBuffer.wrap(_bytes, 0, 0);
+        }
+        _chars = new char[size];
+    }
+
+    /** A source decoding IN with the default charset. */
+    CharSource(InputStream in) {
+        this(in, Charset.defaultCharset(), DEFAULT_SIZE);
+    }
+
+    /** Return the next character, or -1 at the end of input. */
+    int read() {
+        if (_pos == _limit && !fill()) {
+            return -1;
+        }
+        char c = _chars[_pos];
+        _pos += 1;
+        if (c == '\r') {
+            if ((_pos < _limit || fill()) && _chars[_pos] == '\n') {
+                _pos += 1;
+            }
+            return '\n';
+        } else if (c == '\u0085' || c == '\u2028' || c == '\u2029') {
+            return '\n';
+        }
+        return c;
+    }
+
+    /** Return true iff read() has a character that it can return
+     *  without waiting for more input (as far as can be told). */
+    boolean ready() {
+        try {
+            return _pos < _limit || _in.available() > 0;
+        } catch (IOException excp) {
+            return false;
+        }
+    }
+
+    /** Refill _chars, which must be used up.  Return false iff there is
+     *  nothing left to read. */
+    private boolean fill() {
+        _pos = _limit = 0;
+        while (_limit == 0) {
+            if (_flushed) {
+                return false;
+            }
+            decode();
+            if (_limit == 0 && !_eof && !more()) {
+                _eof = true;
+            }
+        }
+        return true;
+    }
+
+    /** Decode as much of _window as fits into _chars from _limit on,
+     *  ending the input if _eof.  Leaves any incomplete trailing
+     *  sequence unread in _window. */
+    private void decode() {
+        ByteBuffer window = _window;
+        int start = window.position();
+        int n = Math.min(window.remaining(), _chars.length - _limit);
+        int i;
+        byte b;
+        for (i = 0; i < n && (b = window.get(start + i)) >= 0; i += 1) {
+            _chars[_limit + i] = (char) b;
+        }
+        _limit += i;
+        window.position(start + i);
+        if (i < n || _eof) {
+            CharBuffer chars = CharBuffer.wrap(_chars, _limit,
+                                               _chars.length - _limit);
+            _decoder.decode(window, chars, _eof);
+            if (_eof && !window.hasRemaining()) {
+                _decoder.flush(chars);
+                _flushed = true;
+            }
+            _limit = chars.position();
+        }
+    }
+
+    /** Make _window hold more undecoded bytes, after those it has left
+     *  unread.  Return false iff there are no more. */
+    private boolean more() {
+        try {
+            if (_mapped != null) {
+                ByteBuffer window = _mapped.window();
+                if (window == null) {
+                    return false;
+                }
+                _window = window;
+                return true;
+            }
+            int carry = _window.remaining();
+            System.arraycopy(_bytes, _window.position(), _bytes, 0, carry);
+            int n = _in.read(_bytes, carry, _bytes.length - carry);
+            _window.position(0);
+            _window.limit(carry + Math.max(n, 0));
+            return n >= 0;
+        } catch (IOException excp) {
+            throw error("could not read input: %s", excp.getMessage());
+        }
+    }
+
+    /** Smallest buffer size, enough for any one encoded character. */
+    private static final int MIN_SIZE = 16;
+
+    /** Stream I read from. */
+    private final InputStream _in;
+
+    /** Decoder for non-ASCII input. */
+    private final CharsetDecoder _decoder;
+
+    /** The stream I read from if it is a MappedInput, else null. */
+    private final MappedInput _mapped;
+
+    /** Buffer that _window wraps when not reading a MappedInput. */
+    private final byte[] _bytes;
+
+    /** Bytes not yet decoded are those remaining in _window. */
+    private ByteBuffer _window;
+
+    /** Decoded characters; _chars[_pos .. _limit-1] are unread. */
+    private final char[] _chars;
+
+    /** Index of the next unread character in _chars. */
+    private int _pos;
+
+    /** End of the decoded characters in _chars. */
+    private int _limit;
+
+    /** True once _in has reported end of input. */
+    private boolean _eof;
+
+    /** True once the last of the input has been decoded. */
+    private boolean _flushed;
+}
@@ -0,0 +1,445 @@
+package enigma;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static enigma.EnigmaException.*;
+
+/** A configured enigma machine flattened into primitive arrays, so that
+ *  converting a character allocates nothing and touches no objects
+ *  other than arrays.  A CompiledMachine converts exactly as the
+ *  Machine it was compiled from would, starting from that Machine's
+ *  state at the time of compilation.
+ *  @author AldrinSembrana
+ */
+class CompiledMachine {
+
+    /** A CompiledMachine with the rotors, settings and plugboard that
+     *  MACH currently has. */
+    CompiledMachine(Machine mach) {
+        _alphabet = mach.alphabet();
+        _size = _alphabet.size();
+        _numSlots = mach.numRotors();
+        _words = (_size + Long.SIZE - 1) / Long.SIZE;
+        _positions = new int[_numSlots];
+        _rotates = new boolean[_numSlots];
+        _notches = new long[_numSlots * _words];
+        _forward = new int[_numSlots][];
+        _backward = new int[_numSlots][];
+        boolean tabled = true;
+        for (int k = 0; k < _numSlots; k += 1) {
+            tabled &= mach.getRotor(k).forwardTable() != null;
+        }
+        _tabled = tabled;
+        for (int k = 0; k < _numSlots; k += 1) {
+            Rotor rotor = mach.getRotor(k);
+            _positions[k] = mach.setting(k);
+            _rotates[k] = rotor.rotates();
+            for (int p = 0; p < _size; p += 1) {
+                if (rotor.isNotch(p)) {
+                    _notches[k * _words + p / Long.SIZE] |= 1L << p;
+                }
+            }
+            if (_tabled) {
+                _forward[k] = rotor.forwardTable();
+                _backward[k] = rotor.backwardTable();
+            } else {
+                _forward[k] = table(rotor.permutation(), false);
+                _backward[k] = table(rotor.permutation(), true);
+            }
+        }
+        _plugboard = table(mach.plugboard(), false);
+        Rotor[] slots = new Rotor[_numSlots];
+        for (int k = 0; k < _numSlots; k += 1) {
+            slots[k] = mach.getRotor(k);
+        }
+        _odometer = new Odometer(slots);
+        int first = _numSlots;
+        while (first > 0 && _rotates[first - 1]) {
+            first -= 1;
+        }
+        _firstMoving = first;
+        refold();
+        _toNotch = new int[_size];
+        int last = _numSlots - 1;
+        for (int p = 2 * _size - 1, d = Integer.MAX_VALUE; p >= 0; p -= 1) {
+            if (isNotch(last, p % _size)) {
+                d = 0;
+            } else if (d != Integer.MAX_VALUE) {
+                d += 1;
+            }
+            _toNotch[p % _size] = d;
+        }
+        _innerStale = true;
+    }
+
+    /** A CompiledMachine in the same state as MACH, sharing its
+     *  immutable tables. */
+    private CompiledMachine(CompiledMachine mach) {
+        _alphabet = mach._alphabet;
+        _size = mach._size;
+        _numSlots = mach._numSlots;
+        _words = mach._words;
+        _positions = mach._positions.clone();
+        _rotates = mach._rotates;
+        _notches = mach._notches;
+        _tabled = mach._tabled;
+        _forward = mach._forward;
+        _backward = mach._backward;
+        _plugboard = mach._plugboard;
+        _odometer = mach._odometer;
+        _firstMoving = mach._firstMoving;
+        _reflect = mach._reflect;
+        _toNotch = mach._toNotch;
+        _innerStale = true;
+    }
+
+    /** Return an independent copy of me in my current state.  The copy
+     *  shares my (immutable) tables, so copying costs little more than
+     *  my array of settings. */
+    CompiledMachine copy() {
+        return new CompiledMachine(this);
+    }
+
+    /** Return the mapping of PERM, or its inverse if INVERSE, as an
+     *  array indexed by alphabet index. */
+    static int[] table(Permutation perm, boolean inverse) {
+        int[] result = new int[perm.size()];
+        for (int i = 0; i < result.length; i += 1) {
+            result[i] = inverse ? perm.invert(i) : perm.permute(i);
+        }
+        return result;
+    }
+
+    /** Return my alphabet. */
+    Alphabet alphabet() {
+        return _alphabet;
+    }
+
+    /** Return the number of rotor slots I have. */
+    int numRotors() {
+        return _numSlots;
+    }
+
+    /** Return the current setting of the rotor in slot K. */
+    int setting(int k) {
+        return _positions[k];
+    }
+
+    /** Set the rotor in slot K to setting POSN, which must be in the
+     *  range 0 .. alphabet size - 1. */
+    void set(int k, int posn) {
+        _positions[k] = posn;
+        _run = 0;
+        _innerStale |= k != _numSlots - 1;
+        if (k < _firstMoving) {
+            refold();
+        }
+    }
+
+    /** Set the rotor in each slot K > 0 to setting POSITIONS[K], as by
+     *  set, but skipping rotors other than the fast one that are
+     *  already there.  Unless a fixed rotor changes, this allocates
+     *  nothing, so it suits searches that try setting after setting. */
+    void setAll(int[] positions) {
+        int last = _numSlots - 1;
+        for (int k = 1; k < last; k += 1) {
+            if (_positions[k] != positions[k]) {
+                set(k, positions[k]);
+            }
+        }
+        set(last, positions[last]);
+    }
+
+    /** Return the index of the leftmost slot whose rotor has a pawl. */
+    int firstMoving() {
+        return _firstMoving;
+    }
+
+    /** Return true iff the rotor in slot K has a pawl. */
+    boolean rotates(int k) {
+        return _rotates[k];
+    }
+
+    /** Return true iff the rotor in slot K has a notch at setting POSN. */
+    boolean isNotch(int k, int posn) {
+        return (_notches[k * _words + (posn >>> LOG_WORD)] & (1L << posn))
+            != 0;
+    }
+
+    /** Returns the result of converting the input character C (as an
+     *  index in the range 0..alphabet size - 1), after first advancing
+     *  the machine. */
+    int convert(int c) {
+        if (_run == 0) {
+            _run = runLength();
+            if (_run == 0) {
+                advance();
+                return scramble(c);
+            }
+        }
+        _run -= 1;
+        int last = _numSlots - 1;
+        int p = _positions[last] + 1;
+        _positions[last] = p == _size ? 0 : p;
+        c = forward(_plugboard[c], last, last);
+        c = backward(_inner[c], last, last);
+        return _plugboard[c];
+    }
+
+    /** Return the number of keypresses, starting with the next, on which
+     *  only the fast rotor will move, updating _inner if that is
+     *  positive.  During such a run the rotors other than the fast one
+     *  act as the single permutation _inner. */
+    private int runLength() {
+        int last = _numSlots - 1;
+        int run = Integer.MAX_VALUE;
+        if (_firstMoving < last) {
+            for (int k = _firstMoving + 1; k < last; k += 1) {
+                if (isNotch(k, _positions[k])) {
+                    return 0;
+                }
+            }
+            run = _toNotch[_positions[last]];
+            if (run == 0) {
+                return 0;
+            }
+        }
+        if (_innerStale) {
+            if (_inner == null) {
+                _inner = new int[_size];
+            }
+            for (int c = 0; c < _size; c += 1) {
+                _inner[c] = backward(_reflect[forward(c, last - 1,
+                                                      _firstMoving)],
+                                     _firstMoving, last - 1);
+            }
+            _innerStale = false;
+        }
+        return run;
+    }
+
+    /** Convert the LEN character indices of IN starting at OFF, storing
+     *  the results at the same positions of OUT, which may be IN. */
+    void convert(int[] in, int off, int len, int[] out) {
+        for (int i = off; i < off + len; i += 1) {
+            out[i] = convert(in[i]);
+        }
+    }
+
+    /** Convert the LEN characters of IN starting at OFF, storing the
+     *  results at the same positions of OUT, which may be IN.  All
+     *  characters must be in my alphabet. */
+    void convert(char[] in, int off, int len, char[] out) {
+        for (int i = off; i < off + len; i += 1) {
+            int c = _alphabet.toInt(in[i]);
+            if (c < 0) {
+                throw error("'%c' is not in the alphabet", in[i]);
+            }
+            out[i] = _alphabet.toChar(convert(c));
+        }
+    }
+
+    /** Returns the encoding/decoding of MSG, updating my state
+     *  accordingly. */
+    String convert(String msg) {
+        char[] buf = msg.toCharArray();
+        convert(buf, 0, buf.length, buf);
+        return new String(buf);
+    }
+
+    /** Convert the LEN characters of BUF starting at OFF in place, as
+     *  for convert(BUF, OFF, LEN, BUF), splitting long stretches into
+     *  chunks that are converted concurrently on POOL.  Produces the
+     *  same output and final state as the serial method. */
+    void convert(char[] buf, int off, int len, ForkJoinPool pool) {
+        if (len < 2 * ParallelConverter.MIN_CHUNK) {
+            convert(buf, off, len, buf);
+        } else {
+            pool.invoke(new ParallelConverter(this, buf, off, off,
+                                              off + len));
+            seek(len);
+        }
+    }
+
+    /** Advance my rotors as Machine does before each character: every
+     *  rotating rotor moves if it is the fast rotor, if the rotor to its
+     *  right is at a notch, or if it is at a notch itself and the rotor
+     *  to its left rotates. */
+    void advance() {
+        int last = _numSlots - 1;
+        _run = 0;
+        for (int i = 0; i <= last; i += 1) {
+            if (_rotates[i]
+                && (i == last
+                    || isNotch(i + 1, _positions[i + 1])
+                    || (i > 0 && _rotates[i - 1]
+                        && isNotch(i, _positions[i])))) {
+                int p = _positions[i] + 1;
+                _positions[i] = p == _size ? 0 : p;
+                _innerStale |= i != last;
+            }
+        }
+    }
+
+    /** Advance my rotors to the settings they would have after N more
+     *  characters were converted, without converting them. */
+    void seek(long n) {
+        _odometer.advance(_positions, n);
+        _run = 0;
+        _innerStale = true;
+    }
+
+    /** Return the result of sending C through the plugboard, rotors and
+     *  reflector at the current settings, without advancing.  The
+     *  reflector and the fixed rotors next to it count as one
+     *  permutation, _reflect. */
+    int scramble(int c) {
+        return scramble(c, _positions);
+    }
+
+    /** Return the result of sending C through the plugboard, rotors and
+     *  reflector with the moving rotors at the settings in POSITIONS
+     *  (indexed by slot) rather than their own, and the fixed rotors at
+     *  their current settings.  Changes nothing. */
+    int scramble(int c, int[] positions) {
+        int last = _numSlots - 1;
+        c = forward(_plugboard[c], last, _firstMoving, positions);
+        c = backward(_reflect[c], _firstMoving, last, positions);
+        return _plugboard[c];
+    }
+
+    /** Return the result of sending C through the rotors in slots HI
+     *  down to LO, toward the reflector. */
+    private int forward(int c, int hi, int lo) {
+        return forward(c, hi, lo, _positions);
+    }
+
+    /** Return the result of sending C through the rotors in slots HI
+     *  down to LO, toward the reflector, with the rotors at the settings
+     *  in POSITIONS. */
+    private int forward(int c, int hi, int lo, int[] positions) {
+        if (_tabled) {
+            for (int k = hi; k >= lo; k -= 1) {
+                c = _forward[k][positions[k] * _size + c];
+            }
+        } else {
+            for (int k = hi; k >= lo; k -= 1) {
+                c = shift(_forward[k], c, positions[k]);
+            }
+        }
+        return c;
+    }
+
+    /** Return the result of sending C back through the rotors in slots
+     *  LO up to HI, away from the reflector. */
+    private int backward(int c, int lo, int hi) {
+        return backward(c, lo, hi, _positions);
+    }
+
+    /** Return the result of sending C back through the rotors in slots
+     *  LO up to HI, away from the reflector, with the rotors at the
+     *  settings in POSITIONS. */
+    private int backward(int c, int lo, int hi, int[] positions) {
+        if (_tabled) {
+            for (int k = lo; k <= hi; k += 1) {
+                c = _backward[k][positions[k] * _size + c];
+            }
+        } else {
+            for (int k = lo; k <= hi; k += 1) {
+                c = shift(_backward[k], c, positions[k]);
+            }
+        }
+        return c;
+    }
+
+    /** Recompute _reflect, the composition of the rotors that never move
+     *  (the reflector and the fixed rotors) at their current settings. */
+    private void refold() {
+        int[] reflect = new int[_size];
+        for (int c = 0; c < _size; c += 1) {
+            reflect[c] = backward(forward(c, _firstMoving - 1, 0), 1,
+                                  _firstMoving - 1);
+        }
+        _reflect = reflect;
+    }
+
+    /** Return the conversion of C by a rotor at setting S whose mapping
+     *  at setting 0 is PERM. */
+    private int shift(int[] perm, int c, int s) {
+        int x = c + s;
+        if (x >= _size) {
+            x -= _size;
+        }
+        int y = perm[x] - s;
+        return y < 0 ? y + _size : y;
+    }
+
+    /** The stepping mechanism of my rotors. */
+    private final Odometer _odometer;
+
+    /** Index of the leftmost rotating slot. */
+    private final int _firstMoving;
+
+    /** The composition of the rotors in slots below _firstMoving, which
+     *  never move: through them to the reflector and back.  Replaced,
+     *  never modified, when one of their settings changes. */
+    private int[] _reflect;
+
+    /** _toNotch[P] is the number of consecutive settings, starting at P,
+     *  at which the fast rotor has no notch (Integer.MAX_VALUE if it has
+     *  none at all). */
+    private final int[] _toNotch;
+
+    /** The composition of all rotors but the fast one at their current
+     *  settings, valid unless _innerStale. */
+    private int[] _inner;
+
+    /** True iff a rotor other than the fast one may have changed setting
+     *  since _inner was computed. */
+    private boolean _innerStale;
+
+    /** Number of further keypresses on which only the fast rotor will
+     *  move, as last computed by runLength(); 0 if unknown. */
+    private int _run;
+
+    /** Base-2 logarithm of Long.SIZE. */
+    private static final int LOG_WORD = 6;
+
+    /** My alphabet. */
+    private final Alphabet _alphabet;
+
+    /** Size of my alphabet. */
+    private final int _size;
+
+    /** Number of rotor slots. */
+    private final int _numSlots;
+
+    /** Number of longs in each slot's notch bitmask. */
+    private final int _words;
+
+    /** Current setting of the rotor in each slot. */
+    private final int[] _positions;
+
+    /** _rotates[K] is true iff the rotor in slot K has a pawl. */
+    private final boolean[] _rotates;
+
+    /** Notch bitmasks: bit P of the mask for slot K, held in the
+     *  _words longs starting at K * _words, is set iff that rotor has a
+     *  notch at setting P. */
+    private final long[] _notches;
+
+    /** True iff _forward and _backward hold per-setting tables, as
+     *  given by Rotor.forwardTable(); otherwise they hold each rotor's
+     *  permutation at setting 0 and its inverse. */
+    private final boolean _tabled;
+
+    /** Forward conversion data for each slot. */
+    private final int[][] _forward;
+
+    /** Backward conversion data for each slot. */
+    private final int[][] _backward;
+
+    /** The plugboard, as an index table.  Like Machine, I apply it
+     *  both on the way in and on the way out. */
+    private final int[] _plugboard;
+}
@@ -0,0 +1,170 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the CompiledMachine class.
+ *  @author AldrinSembrana
+ */
+public class CompiledMachineTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testMatchesMachine() {
+        String[] rotors = { "B", "Beta", "VI", "II", "VIII" };
+        Machine mach = navalMachine(rotors, "AYDZ", "(HQ) (EX) (IP) (TR)");
+        CompiledMachine comp = mach.compile();
+        String msg = randomText(UPPER_STRING, 20000, new Random(61));
+        assertEquals(mach.convert(msg), comp.convert(msg));
+        for (int k = 0; k < 5; k += 1) {
+            assertEquals(mach.setting(k), comp.setting(k));
+        }
+    }
+
+    @Test
+    public void testBatchApis() {
+        String[] rotors = { "B", "Beta", "III", "IV", "I" };
+        String msg = "FROMHISSHOULDERHIAWATHA";
+        String plug = "(HQ) (EX) (IP) (TR) (BY)";
+        CompiledMachine comp = navalMachine(rotors, "AXLE", plug).compile();
+        char[] buf = ("--" + msg).toCharArray();
+        comp.convert(buf, 2, msg.length(), buf);
+        assertEquals("--QVPQSOKOILPUBKJZPISFXDW", new String(buf));
+
+        comp = navalMachine(rotors, "AXLE", plug).compile();
+        int[] in = new int[msg.length()];
+        int[] out = new int[msg.length()];
+        for (int i = 0; i < in.length; i += 1) {
+            in[i] = UPPER.toInt(msg.charAt(i));
+        }
+        comp.convert(in, 0, in.length, out);
+        assertEquals(UPPER.toInt('Q'), out[0]);
+        assertEquals(UPPER.toInt('W'), out[out.length - 1]);
+    }
+
+    @Test
+    public void testLargeAlphabet() {
+        StringBuilder chars = new StringBuilder();
+        for (char c = '\u0400'; c < '\u0400' + 300; c += 1) {
+            chars.append(c);
+        }
+        String alpha = chars.toString();
+        Alphabet big = new Alphabet(alpha);
+        Random rand = new Random(7);
+        ArrayList<Rotor> rotors = new ArrayList<>();
+        rotors.add(new Reflector("R", new Permutation("("
+            + alpha.substring(0, 150) + ")(" + alpha.substring(150) + ")",
+            big)));
+        rotors.add(new MovingRotor("M1", new Permutation("("
+            + randomCycle(alpha, rand) + ")", big), alpha.substring(3, 5)));
+        rotors.add(new MovingRotor("M2", new Permutation("("
+            + randomCycle(alpha, rand) + ")", big), alpha.substring(0, 1)));
+        Machine mach = new Machine(big, 3, 2, rotors);
+        mach.insertRotors(new String[] { "R", "M1", "M2" });
+        mach.setRotors(alpha.substring(2, 4));
+        mach.setPlugboard(new Permutation("", big));
+        CompiledMachine comp = mach.compile();
+        String msg = randomText(alpha, 5000, rand);
+        assertEquals(mach.convert(msg), comp.convert(msg));
+    }
+
+    /** Return the characters of ALPHA shuffled using RAND. */
+    private static String randomCycle(String alpha, Random rand) {
+        char[] chars = alpha.toCharArray();
+        for (int i = chars.length - 1; i > 0; i -= 1) {
+            int j = rand.nextInt(i + 1);
+            char t = chars[i];
+            chars[i] = chars[j];
+            chars[j] = t;
+        }
+        return new String(chars);
+    }
+
+    @Test
+    public void testParallelConvert() {
+        String[] rotors = { "B", "Beta", "III", "IV", "I" };
+        Machine mach = navalMachine(rotors, "AXLE", "(HQ) (EX) (IP)");
+        CompiledMachine serial = mach.compile();
+        CompiledMachine parallel = mach.compile();
+        String msg = randomText(UPPER_STRING, 300001, new Random(5));
+        char[] buf = ("**" + msg).toCharArray();
+        parallel.convert(buf, 2, msg.length(), new ForkJoinPool(4));
+        assertEquals("**" + serial.convert(msg), new String(buf));
+        for (int k = 0; k < 5; k += 1) {
+            assertEquals(serial.setting(k), parallel.setting(k));
+        }
+    }
+
+    @Test
+    public void testSetFixedRotor() {
+        String[] rotors = { "B", "Beta", "III", "IV", "I" };
+        String msg = "FROMHISSHOULDERHIAWATHA";
+        CompiledMachine comp = navalMachine(rotors, "AXLE", "").compile();
+        comp.set(1, UPPER.toInt('Q'));
+        assertEquals(navalMachine(rotors, "QXLE", "").convert(msg),
+                     comp.convert(msg));
+    }
+
+    @Test
+    public void testRandomMachines() {
+        Random rand = new Random(17);
+        for (int trial = 0; trial < 100; trial += 1) {
+            int n = 2 + rand.nextInt(12);
+            String alpha = UPPER_STRING.substring(0, n);
+            Alphabet abc = new Alphabet(alpha);
+            int fixed = rand.nextInt(3), pawls = 1 + rand.nextInt(4);
+            ArrayList<Rotor> rotors = new ArrayList<>();
+            String[] names = new String[1 + fixed + pawls];
+            names[0] = "R";
+            rotors.add(new Reflector("R", new Permutation("", abc)));
+            for (int k = 1; k < names.length; k += 1) {
+                names[k] = "S" + k;
+                Permutation perm = new Permutation("("
+                    + randomCycle(alpha, rand) + ")", abc);
+                if (k <= fixed) {
+                    rotors.add(new FixedRotor(names[k], perm));
+                } else {
+                    rotors.add(new MovingRotor(names[k], perm,
+                        randomCycle(alpha, rand).substring(rand.nextInt(n))));
+                }
+            }
+            Machine mach = new Machine(abc, names.length, pawls, rotors);
+            mach.insertRotors(names);
+            mach.setRotors(randomText(alpha, names.length - 1, rand));
+            mach.setPlugboard(new Permutation("", abc));
+            CompiledMachine comp = mach.compile();
+            for (int chunk = 0; chunk < 5; chunk += 1) {
+                String msg = randomText(alpha, rand.nextInt(200), rand);
+                assertEquals(msg(Integer.toString(trial), "chunk %d", chunk),
+                             mach.convert(msg), comp.convert(msg));
+                int k = 1 + rand.nextInt(names.length - 1);
+                int posn = rand.nextInt(n);
+                String setting = "";
+                for (int j = 1; j < names.length; j += 1) {
+                    setting += alpha.charAt(j == k ? posn : mach.setting(j));
+                }
+                mach.setRotors(setting);
+                comp.set(k, posn);
+            }
+        }
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testBadCharacter() {
+        String[] rotors = { "B", "Beta", "III", "IV", "I" };
+        navalMachine(rotors, "AXLE", "").compile().convert("HELLO world");
+    }
+}
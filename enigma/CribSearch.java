@@ -0,0 +1,137 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static enigma.EnigmaException.*;
+
+/** A brute-force search for the rotor settings at which a machine turns
+ *  a stretch of ciphertext into a known piece of plaintext (a crib).
+ *  Every setting that Machine.setRotors accepts is tried.  The settings
+ *  are numbered as by SettingSpace, and ranges of them are divided among
+ *  the workers of a ForkJoinPool.  Each worker runs its own copy of one
+ *  CompiledMachine, resetting it between candidates without allocating,
+ *  and abandons a candidate at its first wrong character.
+ *  @author AldrinSembrana
+ */
+class CribSearch {
+
+    /** A search for the settings of MACH's rotors (keeping its rotor
+     *  order and plugboard) at which converting CIPHERTEXT yields CRIB
+     *  from position OFFSET onwards.  All characters of CIPHERTEXT and
+     *  CRIB must be in MACH's alphabet. */
+    CribSearch(Machine mach, String ciphertext, String crib, int offset) {
+        Alphabet alpha = mach.alphabet();
+        if (crib.isEmpty()) {
+            throw error("empty crib");
+        } else if (offset < 0 || offset + crib.length()
+                   > ciphertext.length()) {
+            throw error("crib does not fit in the ciphertext");
+        }
+        _cipher = alpha.toInts(ciphertext.substring(offset,
+                                                    offset + crib.length()));
+        _crib = alpha.toInts(crib);
+        _offset = offset;
+        _template = mach.compile();
+        _space = new SettingSpace(alpha, mach.numRotors());
+    }
+
+    /** Return the number of settings to be tried. */
+    long count() {
+        return _space.count();
+    }
+
+    /** Return the settings, in the format accepted by
+     *  Machine.setRotors, at which the crib matches, in increasing
+     *  order, searching on POOL. */
+    List<String> search(ForkJoinPool pool) {
+        ConcurrentLinkedQueue<Long> found = new ConcurrentLinkedQueue<>();
+        pool.invoke(new Range(0, _space.count(), found));
+        ArrayList<Long> sorted = new ArrayList<>(found);
+        sorted.sort(null);
+        ArrayList<String> result = new ArrayList<>();
+        for (long index : sorted) {
+            result.add(_space.toString(index));
+        }
+        return result;
+    }
+
+    /** Return the settings at which the crib matches, as for
+     *  search(POOL), searching on the common pool. */
+    List<String> search() {
+        return search(ForkJoinPool.commonPool());
+    }
+
+    /** Try the candidates numbered LO .. HI-1 on MACH, adding those
+     *  that match to FOUND. */
+    private void scan(CompiledMachine mach, long lo, long hi,
+                      ConcurrentLinkedQueue<Long> found) {
+        int[] positions = _space.positions(lo);
+        for (long index = lo; index < hi; index += 1) {
+            mach.setAll(positions);
+            for (int i = 0; i < _offset; i += 1) {
+                mach.advance();
+            }
+            int i;
+            for (i = 0; i < _crib.length; i += 1) {
+                if (mach.convert(_cipher[i]) != _crib[i]) {
+                    break;
+                }
+            }
+            if (i == _crib.length) {
+                found.add(index);
+            }
+            _space.next(positions);
+        }
+    }
+
+    /** A fork/join task trying a range of candidates. */
+    private class Range extends RecursiveAction {
+        /** A task trying the candidates numbered LO .. HI-1, adding
+         *  those that match to FOUND. */
+        Range(long lo, long hi, ConcurrentLinkedQueue<Long> found) {
+            _lo = lo;
+            _hi = hi;
+            _found = found;
+        }
+
+        @Override
+        protected void compute() {
+            if (_hi - _lo <= LEAF_SIZE) {
+                scan(_template.copy(), _lo, _hi, _found);
+            } else {
+                long mid = _lo + (_hi - _lo) / 2;
+                invokeAll(new Range(_lo, mid, _found),
+                          new Range(mid, _hi, _found));
+            }
+        }
+
+        /** Bounds of the candidates I try. */
+        private final long _lo, _hi;
+
+        /** Where matching candidates go. */
+        private final ConcurrentLinkedQueue<Long> _found;
+    }
+
+    /** The largest number of candidates tried by one task. */
+    static final int LEAF_SIZE = 1 << 12;
+
+    /** The machine each worker copies, with the rotors and plugboard
+     *  being searched. */
+    private final CompiledMachine _template;
+
+    /** The stretch of ciphertext lined up with the crib, as indices. */
+    private final int[] _cipher;
+
+    /** The crib, as indices. */
+    private final int[] _crib;
+
+    /** Position of the crib in the ciphertext. */
+    private final int _offset;
+
+    /** The settings searched. */
+    private final SettingSpace _space;
+}
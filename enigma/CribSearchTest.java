@@ -0,0 +1,77 @@
+package enigma;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the CribSearch class.
+ *  @author AldrinSembrana
+ */
+public class CribSearchTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testFindsSetting() {
+        String[] rotors = { "B", "Beta", "III", "IV", "I" };
+        String plugboard = "(HQ) (EX) (IP) (TR) (BY)";
+        String plain = "XXWEATHERREPORTFORTHENORTHSEA"
+            + randomText(UPPER_STRING, 30, new Random(21));
+        String cipher = navalMachine(rotors, "GZYQ", plugboard)
+            .convert(plain);
+        CribSearch search = new CribSearch(
+            navalMachine(rotors, "AAAA", plugboard), cipher,
+            "WEATHERREPORT", 2);
+        assertEquals(26 * 26 * 26 * 26, search.count());
+        List<String> found = search.search(new ForkJoinPool(2));
+        assertTrue(found.contains("GZYQ"));
+        for (String setting : found) {
+            Machine mach = navalMachine(rotors, setting, plugboard);
+            assertEquals("WEATHERREPORT",
+                         mach.convert(cipher).substring(2, 15));
+        }
+    }
+
+    @Test
+    public void testAgreesWithMachine() {
+        Alphabet alpha = new Alphabet("ABCDEF");
+        Machine mach = new Machine(alpha, 3, 1, List.of(
+            new Reflector("R", new Permutation("(AB) (CD) (EF)", alpha)),
+            new FixedRotor("F", new Permutation("(ACE)", alpha)),
+            new MovingRotor("M", new Permutation("(ABCDEF)", alpha), "C")));
+        mach.insertRotors(new String[] { "R", "F", "M" });
+        mach.setPlugboard(new Permutation("", alpha));
+        String cipher = "ABCDEFAB";
+        CribSearch search = new CribSearch(mach, cipher, "C", 3);
+        StringBuilder expected = new StringBuilder();
+        for (char f : "ABCDEF".toCharArray()) {
+            for (char m : "ABCDEF".toCharArray()) {
+                mach.setRotors("" + f + m);
+                if (mach.convert(cipher).substring(3, 4).equals("C")) {
+                    expected.append(f).append(m).append(' ');
+                }
+            }
+        }
+        assertTrue(expected.length() > 0);
+        assertEquals(expected.toString().trim(),
+                     String.join(" ", search.search()));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testCribTooLong() {
+        new CribSearch(navalMachine(new String[] { "B", "Beta", "III", "IV",
+                                                   "I" }, "AAAA", ""),
+                       "ABC", "ABCD", 0);
+    }
+}
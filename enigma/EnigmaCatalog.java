@@ -0,0 +1,88 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** The public face of a machine configuration: an alphabet, a number
+ *  of rotor slots and pawls, and the rotors available to fill them, as
+ *  read from a configuration file (in the format accepted by Main) or a
+ *  catalog image made by "java enigma.Main compile-config".
+ *
+ *  An EnigmaCatalog is immutable and may be shared freely between
+ *  threads.  Machines are made from it with builder(); each machine
+ *  belongs to one thread at a time, but any number of machines from one
+ *  catalog may run concurrently.  Errors in the configuration are
+ *  reported by throwing EnigmaException.
+ *  @author AldrinSembrana
+ */
+public final class EnigmaCatalog {
+
+    /** The catalog described by CATALOG. */
+    private EnigmaCatalog(Catalog catalog) {
+        _catalog = catalog;
+        ArrayList<String> names = new ArrayList<>();
+        for (Rotor rotor : catalog.rotors()) {
+            names.add(rotor.name());
+        }
+        _rotorNames = Collections.unmodifiableList(names);
+    }
+
+    /** Return the catalog described by the configuration text CONFIG. */
+    public static EnigmaCatalog parse(String config) {
+        return new EnigmaCatalog(Main.parseCatalog(config));
+    }
+
+    /** Return the catalog in the configuration file or catalog image
+     *  FILE. */
+    public static EnigmaCatalog load(Path file) throws IOException {
+        return new EnigmaCatalog(Main.readCatalog(Files.readAllBytes(file)));
+    }
+
+    /** Return the catalog in the configuration file or catalog image
+     *  read from IN, which is read to its end but not closed. */
+    public static EnigmaCatalog load(InputStream in) throws IOException {
+        return new EnigmaCatalog(Main.readCatalog(in.readAllBytes()));
+    }
+
+    /** Return the characters of my alphabet, in order. */
+    public String alphabet() {
+        return _catalog.alphabet().chars();
+    }
+
+    /** Return the number of rotor slots in my machines. */
+    public int numRotors() {
+        return _catalog.numRotors();
+    }
+
+    /** Return the number of pawls (and thus moving rotors) in my
+     *  machines. */
+    public int numPawls() {
+        return _catalog.numPawls();
+    }
+
+    /** Return the names of my rotors, in the order they were given. */
+    public List<String> rotorNames() {
+        return _rotorNames;
+    }
+
+    /** Return a builder for a machine using my rotors. */
+    public EnigmaMachine.Builder builder() {
+        return new EnigmaMachine.Builder(this);
+    }
+
+    /** Return the Catalog I stand for. */
+    Catalog catalog() {
+        return _catalog;
+    }
+
+    /** The catalog I stand for. */
+    private final Catalog _catalog;
+
+    /** Names of my rotors. */
+    private final List<String> _rotorNames;
+}
@@ -0,0 +1,159 @@
+package enigma;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import static enigma.EnigmaException.*;
+
+/** Byte channels that convert what flows through them with an
+ *  EnigmaFilter.  Each byte is taken as the character with the same
+ *  code (ISO-8859-1), so the alphabet's converted letters must fit in a
+ *  byte.
+ *  @author AldrinSembrana
+ */
+public final class EnigmaChannels {
+
+    /** Not instantiable. */
+    private EnigmaChannels() {
+    }
+
+    /** Return a channel that reads the bytes of IN, converted by
+     *  FILTER.  Closing it closes IN. */
+    public static ReadableByteChannel readable(ReadableByteChannel in,
+                                               EnigmaFilter filter) {
+        return new Reading(in, filter);
+    }
+
+    /** Return a channel that converts the bytes written to it with
+     *  FILTER and writes them to OUT.  Closing it closes OUT. */
+    public static WritableByteChannel writable(WritableByteChannel out,
+                                               EnigmaFilter filter) {
+        return new Writing(out, filter);
+    }
+
+    /** Filter the bytes of SRC, from its position to its limit, with
+     *  FILTER, storing them as bytes at the start of DST, using CHARS
+     *  as scratch space.  Returns the number stored. */
+    private static int filter(EnigmaFilter filter, ByteBuffer src,
+                              char[] chars, byte[] dst) {
+        int n = 0;
+        while (src.hasRemaining()) {
+            n = filter.filter((char) (src.get() & BYTE_MASK), chars, n);
+        }
+        for (int i = 0; i < n; i += 1) {
+            if (chars[i] > BYTE_MASK) {
+                throw error("'%c' does not fit in a byte", chars[i]);
+            }
+            dst[i] = (byte) chars[i];
+        }
+        return n;
+    }
+
+    /** A channel converting what it reads. */
+    private static class Reading implements ReadableByteChannel {
+        /** A channel reading IN through FILTER. */
+        Reading(ReadableByteChannel in, EnigmaFilter filter) {
+            _in = in;
+            _filter = filter;
+            _converted.flip();
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            while (!_converted.hasRemaining()) {
+                _raw.clear();
+                int n = _in.read(_raw);
+                if (n < 0) {
+                    return -1;
+                }
+                _raw.flip();
+                int k = filter(_filter, _raw, _chars, _converted.array());
+                _converted.clear().limit(k);
+                if (n == 0 && k == 0) {
+                    return 0;
+                }
+            }
+            int n = Math.min(dst.remaining(), _converted.remaining());
+            dst.put(_converted.array(), _converted.position(), n);
+            _converted.position(_converted.position() + n);
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return _in.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            _in.close();
+        }
+
+        /** The channel I read. */
+        private final ReadableByteChannel _in;
+        /** Converts what I read. */
+        private final EnigmaFilter _filter;
+        /** Bytes read from _in. */
+        private final ByteBuffer _raw = ByteBuffer.allocate(BUFFER_SIZE);
+        /** Scratch space for converted characters. */
+        private final char[] _chars =
+            new char[EnigmaFilter.MAX_EXPANSION * BUFFER_SIZE];
+        /** Converted bytes not yet read. */
+        private final ByteBuffer _converted =
+            ByteBuffer.allocate(EnigmaFilter.MAX_EXPANSION * BUFFER_SIZE);
+    }
+
+    /** A channel converting what is written to it. */
+    private static class Writing implements WritableByteChannel {
+        /** A channel writing through FILTER to OUT. */
+        Writing(WritableByteChannel out, EnigmaFilter filter) {
+            _out = out;
+            _filter = filter;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            int total = src.remaining();
+            while (src.hasRemaining()) {
+                ByteBuffer chunk = src.slice();
+                chunk.limit(Math.min(chunk.limit(), BUFFER_SIZE));
+                src.position(src.position() + chunk.remaining());
+                int n = filter(_filter, chunk, _chars, _bytes);
+                ByteBuffer converted = ByteBuffer.wrap(_bytes, 0, n);
+                while (converted.hasRemaining()) {
+                    _out.write(converted);
+                }
+            }
+            return total;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return _out.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            _out.close();
+        }
+
+        /** The channel I write to. */
+        private final WritableByteChannel _out;
+        /** Converts what is written. */
+        private final EnigmaFilter _filter;
+        /** Scratch space for converted characters. */
+        private final char[] _chars =
+            new char[EnigmaFilter.MAX_EXPANSION * BUFFER_SIZE];
+        /** Converted bytes. */
+        private final byte[] _bytes =
+            new byte[EnigmaFilter.MAX_EXPANSION * BUFFER_SIZE];
+    }
+
+    /** Mask selecting the low byte of a character. */
+    private static final int BYTE_MASK = 0xff;
+
+    /** Number of bytes converted at once. */
+    private static final int BUFFER_SIZE = 8192;
+}
@@ -0,0 +1,95 @@
+package enigma;
+
+/** Converts a stream of characters one at a time with an EnigmaMachine,
+ *  deciding what to do with characters outside the machine's alphabet
+ *  and optionally grouping the output into blocks of five letters.  It
+ *  holds no more than one character's worth of state, so messages of
+ *  any length can be converted as they flow.  EnigmaReader,
+ *  EnigmaWriter and EnigmaChannels are built on it.
+ *
+ *  Characters outside the alphabet are passed through unchanged or
+ *  dropped.  When grouping, converted letters are separated into groups
+ *  of five by single blanks, blanks and tabs in the input are always
+ *  dropped, and a line break (when passed through) starts a new group.
+ *  Like its machine, an EnigmaFilter must be used by one thread at a
+ *  time.
+ *  @author AldrinSembrana
+ */
+public final class EnigmaFilter {
+
+    /** Number of letters in a group. */
+    public static final int GROUP = 5;
+
+    /** Most characters that filter may produce from one character. */
+    public static final int MAX_EXPANSION = 2;
+
+    /** A filter converting with MACH that passes non-alphabet characters
+     *  through iff PASSTHROUGH and groups its output iff GROUPED. */
+    public EnigmaFilter(EnigmaMachine mach, boolean passThrough,
+                        boolean grouped) {
+        _mach = mach;
+        _passThrough = passThrough;
+        _grouped = grouped;
+    }
+
+    /** A filter converting with MACH that passes non-alphabet characters
+     *  through and does not group. */
+    public EnigmaFilter(EnigmaMachine mach) {
+        this(mach, true, false);
+    }
+
+    /** Return my machine. */
+    public EnigmaMachine machine() {
+        return _mach;
+    }
+
+    /** Filter the character C, storing what it produces (at most
+     *  MAX_EXPANSION characters) in OUT starting at POS.  Returns the
+     *  position after the last character stored. */
+    public int filter(char c, char[] out, int pos) {
+        if (_mach.accepts(c)) {
+            if (_grouped) {
+                if (_column == GROUP) {
+                    out[pos] = ' ';
+                    pos += 1;
+                    _column = 0;
+                }
+                _column += 1;
+            }
+            out[pos] = _mach.convert(c);
+            return pos + 1;
+        } else if (_grouped && (c == ' ' || c == '\t')) {
+            return pos;
+        } else if (!_passThrough) {
+            return pos;
+        }
+        if (c == '\n' || c == '\r') {
+            _column = 0;
+        }
+        out[pos] = c;
+        return pos + 1;
+    }
+
+    /** Filter the LEN characters of IN starting at OFF, storing the
+     *  results in OUT starting at POS; OUT must have room for
+     *  MAX_EXPANSION * LEN characters.  Returns the position after the
+     *  last character stored. */
+    public int filter(char[] in, int off, int len, char[] out, int pos) {
+        for (int i = off; i < off + len; i += 1) {
+            pos = filter(in[i], out, pos);
+        }
+        return pos;
+    }
+
+    /** The machine that converts letters. */
+    private final EnigmaMachine _mach;
+
+    /** True iff non-alphabet characters are passed through. */
+    private final boolean _passThrough;
+
+    /** True iff output is grouped. */
+    private final boolean _grouped;
+
+    /** Number of letters in the current group. */
+    private int _column;
+}
@@ -0,0 +1,142 @@
+package enigma;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the EnigmaFilter, EnigmaReader,
+ *  EnigmaWriter and EnigmaChannels classes.
+ *  @author AldrinSembrana
+ */
+public class EnigmaFilterTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return the machine of the Carroll example. */
+    private static EnigmaMachine carroll() {
+        return EnigmaCatalog.parse(NAVAL_CONFIG).builder()
+            .rotors("B", "Beta", "III", "IV", "I").positions("AXLE")
+            .plugboard("(HQ) (EX) (IP) (TR) (BY)").build();
+    }
+
+    private static final String INPUT =
+        "From his shoulder HIAWATHA\nTook the CAMERA, of rosewood.\n";
+
+    private static final String PASSED =
+        "Qrom his shoulder URSECRBV\nWook the FIHKJB, of rosewood.\n";
+
+    private static final String GROUPED = "QVPQS OKOIL PUBKJ ZPISF XDW";
+
+    /** Return everything read from IN. */
+    private static String readAll(Reader in) throws IOException {
+        StringBuilder result = new StringBuilder();
+        char[] buf = new char[7];
+        for (int n = in.read(buf); n >= 0; n = in.read(buf)) {
+            result.append(buf, 0, n);
+        }
+        return result.toString();
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testPassAndDrop() throws IOException {
+        assertEquals(PASSED, readAll(new EnigmaReader(
+            new StringReader(INPUT), new EnigmaFilter(carroll()))));
+        StringWriter out = new StringWriter();
+        try (Writer writer = new EnigmaWriter(
+                 out, new EnigmaFilter(carroll(), false, false))) {
+            writer.write("FROM his HIS ");
+            writer.write('S');
+            writer.write("HOULDER HIAWATHA\n".toCharArray());
+        }
+        assertEquals("QVPQSOKOILPUBKJZPISFXDW", out.toString());
+    }
+
+    @Test
+    public void testSingleCharactersAndSkip() throws IOException {
+        Reader in = new EnigmaReader(new StringReader(INPUT),
+                                     new EnigmaFilter(carroll()));
+        assertEquals(PASSED.charAt(0), in.read());
+        assertEquals(5, in.skip(5));
+        StringBuilder rest = new StringBuilder();
+        for (int c = in.read(); c >= 0; c = in.read()) {
+            rest.append((char) c);
+        }
+        assertEquals(PASSED.substring(6), rest.toString());
+        assertEquals(0, in.skip(3));
+    }
+
+    @Test
+    public void testGrouping() throws IOException {
+        String input = "FROM HIS SHOULDER\tHIAWATHA\nTOOK\n\nTHE";
+        assertEquals(GROUPED + "\nBHCN\n\nSCX",
+                     readAll(new EnigmaReader(
+                         new StringReader(input),
+                         new EnigmaFilter(carroll(), true, true))));
+        StringWriter out = new StringWriter();
+        Writer writer = new EnigmaWriter(
+            out, new EnigmaFilter(carroll(), false, true));
+        writer.write(input);
+        writer.flush();
+        assertEquals("QVPQS OKOIL PUBKJ ZPISF XDWBH CNSCX", out.toString());
+    }
+
+    @Test
+    public void testLongStreams() throws IOException {
+        String msg = randomText(UPPER_STRING, 100000, new Random(20));
+        String expected = carroll().convert(msg);
+        assertEquals(expected, readAll(new EnigmaReader(
+            new StringReader(msg), new EnigmaFilter(carroll()))));
+        StringWriter out = new StringWriter();
+        new EnigmaWriter(out, new EnigmaFilter(carroll())).write(msg);
+        assertEquals(expected, out.toString());
+    }
+
+    @Test
+    public void testChannels() throws IOException {
+        byte[] input = INPUT.getBytes(StandardCharsets.ISO_8859_1);
+        ReadableByteChannel in = EnigmaChannels.readable(
+            Channels.newChannel(new ByteArrayInputStream(input)),
+            new EnigmaFilter(carroll()));
+        ByteBuffer buf = ByteBuffer.allocate(input.length);
+        while (in.read(buf) >= 0) {
+            assertTrue(buf.position() <= input.length);
+        }
+        assertEquals(PASSED, new String(buf.array(), 0, buf.position(),
+                                        StandardCharsets.ISO_8859_1));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        WritableByteChannel out = EnigmaChannels.writable(
+            Channels.newChannel(bytes),
+            new EnigmaFilter(carroll(), false, true));
+        ByteBuffer src = ByteBuffer.wrap(input);
+        assertEquals(input.length, out.write(src));
+        assertFalse(src.hasRemaining());
+        out.close();
+        assertEquals("QURSE CRBVW FIHKJ B",
+                     new String(bytes.toByteArray(),
+                                StandardCharsets.ISO_8859_1));
+    }
+}
@@ -0,0 +1,187 @@
+package enigma;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static enigma.EnigmaException.*;
+
+/** A public Enigma machine, made by EnigmaCatalog.builder().  Each
+ *  conversion advances the machine, exactly as Main does for each
+ *  character of a message, so a message converted by one machine is
+ *  restored by converting it with another built the same way.
+ *
+ *  A machine is not thread-safe: it must be used by one thread at a
+ *  time.  Machines share only immutable tables, so separate machines may
+ *  be used concurrently without locking.  Characters not in the
+ *  alphabet are reported by throwing EnigmaException, except where a
+ *  method says otherwise.
+ *  @author AldrinSembrana
+ */
+public final class EnigmaMachine {
+
+    /** A machine that converts as MACH does, from its current state. */
+    private EnigmaMachine(EnigmaCatalog catalog, CompiledMachine mach) {
+        _catalog = catalog;
+        _mach = mach;
+        _alphabet = mach.alphabet();
+    }
+
+    /** Return the catalog I was built from. */
+    public EnigmaCatalog catalog() {
+        return _catalog;
+    }
+
+    /** Return true iff C is in my alphabet. */
+    public boolean accepts(char c) {
+        return _alphabet.toInt(c) >= 0;
+    }
+
+    /** Return the conversion of the character C, which must be in my
+     *  alphabet. */
+    public char convert(char c) {
+        int k = _alphabet.toInt(c);
+        if (k < 0) {
+            throw error("'%c' is not in the alphabet", c);
+        }
+        return _alphabet.toChar(_mach.convert(k));
+    }
+
+    /** Return the conversion of the alphabet index K (0 <= K < size of
+     *  the alphabet). */
+    public int convert(int k) {
+        if (k < 0 || k >= _alphabet.size()) {
+            throw error("index %d is not in the alphabet", k);
+        }
+        return _mach.convert(k);
+    }
+
+    /** Return the conversion of MSG, all of whose characters must be in
+     *  my alphabet.  Throws EnigmaException, after converting the
+     *  characters before it, at the first that is not. */
+    public String convert(CharSequence msg) {
+        char[] buf = new char[msg.length()];
+        for (int i = 0; i < buf.length; i += 1) {
+            buf[i] = msg.charAt(i);
+        }
+        _mach.convert(buf, 0, buf.length, buf);
+        return new String(buf);
+    }
+
+    /** Convert the LEN characters of BUF starting at OFF in place.  All
+     *  must be in my alphabet; if one is not, the characters before it
+     *  have been converted when the exception is thrown. */
+    public void convert(char[] buf, int off, int len) {
+        if (off < 0 || len < 0 || off > buf.length - len) {
+            throw new IndexOutOfBoundsException();
+        }
+        _mach.convert(buf, off, len, buf);
+    }
+
+    /** Convert, in place, the bytes of BUF from its position to its
+     *  limit, reading each byte as the character with the same code
+     *  (ISO-8859-1), and advance its position to its limit.  All must be
+     *  in my alphabet; if one is not, BUF is left positioned at it. */
+    public void convert(ByteBuffer buf) {
+        for (int i = buf.position(); i < buf.limit(); i += 1) {
+            char c = (char) (buf.get(i) & 0xff);
+            int k = _alphabet.toInt(c);
+            if (k < 0) {
+                buf.position(i);
+                throw error("'%c' is not in the alphabet", c);
+            }
+            char out = _alphabet.toChar(_mach.convert(k));
+            if (out > MAX_BYTE_CHAR) {
+                buf.position(i);
+                throw error("'%c' does not fit in a byte", out);
+            }
+            buf.put(i, (byte) out);
+        }
+        buf.position(buf.limit());
+    }
+
+    /** Return a new machine in my current state, which may be used
+     *  independently of me, for instance by another thread. */
+    public EnigmaMachine copy() {
+        return new EnigmaMachine(_catalog, _mach.copy());
+    }
+
+    /** Builds EnigmaMachines.  By default, rotors are at the first
+     *  setting of the alphabet and there is no plugboard.  A builder
+     *  may build any number of machines. */
+    public static final class Builder {
+
+        /** A builder for machines from CATALOG. */
+        Builder(EnigmaCatalog catalog) {
+            _catalog = catalog;
+        }
+
+        /** Use the rotors named NAMES, from the reflector on the left to
+         *  the fast rotor on the right, one per slot.  Returns this
+         *  builder. */
+        public Builder rotors(String... names) {
+            _rotors = names.clone();
+            return this;
+        }
+
+        /** Set the rotors other than the reflector, from the left, to
+         *  the settings given by the characters of POSITIONS.  Returns
+         *  this builder. */
+        public Builder positions(String positions) {
+            _positions = positions;
+            return this;
+        }
+
+        /** Use the plugboard given by CYCLES, in cycle notation (such as
+         *  "(AB) (CD)").  Returns this builder. */
+        public Builder plugboard(String cycles) {
+            _plugboard = cycles;
+            return this;
+        }
+
+        /** Return a new machine with my rotors, positions and plugboard.
+         *  Throws EnigmaException if they are not valid for my
+         *  catalog. */
+        public EnigmaMachine build() {
+            if (_rotors == null) {
+                throw error("no rotors given");
+            }
+            Catalog catalog = _catalog.catalog();
+            Machine mach = catalog.newMachine();
+            mach.insertRotors(_rotors);
+            String positions = _positions;
+            if (positions == null) {
+                char[] first = new char[_rotors.length - 1];
+                Arrays.fill(first, catalog.alphabet().toChar(0));
+                positions = new String(first);
+            }
+            mach.setRotors(positions);
+            mach.setPlugboard(new Permutation(_plugboard,
+                                              catalog.alphabet()));
+            return new EnigmaMachine(_catalog, mach.compile());
+        }
+
+        /** The catalog my machines come from. */
+        private final EnigmaCatalog _catalog;
+
+        /** Names of my rotors, or null if not yet given. */
+        private String[] _rotors;
+
+        /** Rotor settings, or null for the first setting of each. */
+        private String _positions;
+
+        /** Plugboard cycles. */
+        private String _plugboard = "";
+    }
+
+    /** Largest character that convert(ByteBuffer) can store. */
+    private static final char MAX_BYTE_CHAR = 0xff;
+
+    /** The catalog I was built from. */
+    private final EnigmaCatalog _catalog;
+
+    /** The machine that does my conversions. */
+    private final CompiledMachine _mach;
+
+    /** My alphabet. */
+    private final Alphabet _alphabet;
+}
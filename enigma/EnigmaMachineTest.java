@@ -0,0 +1,168 @@
+package enigma;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the public EnigmaCatalog and
+ *  EnigmaMachine classes.
+ *  @author AldrinSembrana
+ */
+public class EnigmaMachineTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return a builder for the machine of the Carroll example. */
+    private static EnigmaMachine.Builder carroll(EnigmaCatalog catalog) {
+        return catalog.builder().rotors("B", "Beta", "III", "IV", "I")
+            .positions("AXLE").plugboard("(HQ) (EX) (IP) (TR) (BY)");
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testLoadAndConvert() throws IOException {
+        EnigmaCatalog catalog = EnigmaCatalog.parse(NAVAL_CONFIG);
+        assertEquals(UPPER_STRING, catalog.alphabet());
+        assertEquals(5, catalog.numRotors());
+        assertEquals(3, catalog.numPawls());
+        assertEquals("I", catalog.rotorNames().get(0));
+        EnigmaCatalog loaded = EnigmaCatalog.load(new ByteArrayInputStream(
+            NAVAL_CONFIG.getBytes(StandardCharsets.US_ASCII)));
+
+        assertEquals("QVPQSOKOILPUBKJZPISFXDW",
+                     carroll(catalog).build()
+                     .convert("FROMHISSHOULDERHIAWATHA"));
+        EnigmaMachine mach = carroll(loaded).build();
+        char[] buf = "XFROMHISSHOULDERHIAWATHAX".toCharArray();
+        mach.convert(buf, 1, 23);
+        assertEquals("XQVPQSOKOILPUBKJZPISFXDWX", new String(buf));
+
+        ByteBuffer bytes = ByteBuffer.wrap(
+            "FROMHISSHOULDERHIAWATHA".getBytes(StandardCharsets.US_ASCII));
+        carroll(loaded).build().convert(bytes);
+        assertFalse(bytes.hasRemaining());
+        assertEquals("QVPQSOKOILPUBKJZPISFXDW",
+                     new String(bytes.array(), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void testDefaultsAndCopies() {
+        EnigmaCatalog catalog = EnigmaCatalog.parse(NAVAL_CONFIG);
+        EnigmaMachine.Builder builder =
+            catalog.builder().rotors("B", "Beta", "III", "IV", "I");
+        String msg = randomText(UPPER_STRING, 1000, new Random(17));
+        EnigmaMachine mach = builder.positions("AAAA").build();
+        String expected = mach.convert(msg);
+        assertEquals(expected, builder.positions(null).build().convert(msg));
+
+        EnigmaMachine first = builder.build();
+        first.convert(msg.substring(0, 400));
+        EnigmaMachine second = first.copy();
+        assertEquals(expected.substring(400),
+                     second.convert(msg.substring(400)));
+        assertEquals(expected.substring(400),
+                     first.convert(msg.substring(400)));
+        assertEquals(msg, builder.build().convert(expected));
+    }
+
+    @Test
+    public void testNonAsciiAlphabet() {
+        EnigmaCatalog catalog = EnigmaCatalog.parse(
+            "ABC\u00c4\u00d6\u00dc\n3 1\n"
+            + "R R (A\u00c4) (B\u00d6) (C\u00dc)\n"
+            + "F N (AB)\n"
+            + "M M\u00c4 (ABC\u00c4\u00d6\u00dc)\n");
+        assertEquals("ABC\u00c4\u00d6\u00dc", catalog.alphabet());
+        EnigmaMachine.Builder builder =
+            catalog.builder().rotors("R", "F", "M");
+        String msg = "\u00c4\u00d6\u00dcABC";
+        String cipher = builder.build().convert(msg);
+        assertEquals(msg, builder.build().convert(cipher));
+    }
+
+    @Test
+    public void testErrors() {
+        EnigmaCatalog catalog = EnigmaCatalog.parse(NAVAL_CONFIG);
+        try {
+            catalog.builder().rotors("B", "Beta", "III", "IV").build();
+            fail("wrong number of rotors accepted");
+        } catch (EnigmaException excp) {
+            /* Expected. */
+        }
+        EnigmaMachine mach = carroll(catalog).build();
+        ByteBuffer bytes = ByteBuffer.wrap(
+            "AB!CD".getBytes(StandardCharsets.US_ASCII));
+        try {
+            mach.convert(bytes);
+            fail("bad character accepted");
+        } catch (EnigmaException excp) {
+            assertEquals(2, bytes.position());
+        }
+        try {
+            EnigmaCatalog.parse("ABC\n3 1\nR R (AB)\nR R (AB)\n");
+            fail("duplicate rotor accepted");
+        } catch (EnigmaException excp) {
+            /* Expected. */
+        }
+    }
+
+    @Test
+    public void testStringsOutsideAlphabet() {
+        EnigmaCatalog catalog = EnigmaCatalog.parse(NAVAL_CONFIG);
+        EnigmaMachine mach = carroll(catalog).build();
+        try {
+            mach.convert("HELLO world");
+            fail("bad character accepted");
+        } catch (EnigmaException excp) {
+            /* Expected. */
+        }
+        mach = carroll(catalog).build();
+        char[] buf = "*FROMhis".toCharArray();
+        try {
+            mach.convert(buf, 1, 7);
+            fail("bad character accepted");
+        } catch (EnigmaException excp) {
+            assertEquals("*QVPQhis", new String(buf));
+        }
+        buf = "ab".toCharArray();
+        try {
+            carroll(catalog).build().convert(buf, 0, 2);
+            fail("bad character accepted");
+        } catch (EnigmaException excp) {
+            assertEquals("ab", new String(buf));
+        }
+    }
+
+    @Test
+    public void testConcurrentMachines() throws InterruptedException {
+        EnigmaCatalog catalog = EnigmaCatalog.parse(NAVAL_CONFIG);
+        String msg = randomText(UPPER_STRING, 20000, new Random(18));
+        String expected = carroll(catalog).build().convert(msg);
+        String[] results = new String[4];
+        Thread[] threads = new Thread[results.length];
+        for (int i = 0; i < threads.length; i += 1) {
+            int k = i;
+            EnigmaMachine mach = carroll(catalog).build();
+            threads[i] = new Thread(() -> results[k] = mach.convert(msg));
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i += 1) {
+            threads[i].join();
+            assertEquals(expected, results[i]);
+        }
+    }
+}
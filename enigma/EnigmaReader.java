@@ -0,0 +1,106 @@
+package enigma;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/** A Reader that converts the characters of another Reader with an
+ *  EnigmaFilter as they are read.
+ *  @author AldrinSembrana
+ */
+public class EnigmaReader extends FilterReader {
+
+    /** A reader of the characters of IN, converted by FILTER. */
+    public EnigmaReader(Reader in, EnigmaFilter filter) {
+        super(in);
+        _filter = filter;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        char c = _converted[_pos];
+        _pos += 1;
+        return c;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        } else if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(len, _limit - _pos);
+        System.arraycopy(_converted, _pos, cbuf, off, n);
+        _pos += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && fill()) {
+            int k = (int) Math.min(_limit - _pos, n - skipped);
+            _pos += k;
+            skipped += k;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean ready() throws IOException {
+        return _pos < _limit || in.ready();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void mark(int readAheadLimit) throws IOException {
+        throw new IOException("mark not supported");
+    }
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("reset not supported");
+    }
+
+    /** Make sure _converted has unread characters, reading and
+     *  converting more if need be.  Return false iff there are none
+     *  left. */
+    private boolean fill() throws IOException {
+        while (_pos == _limit) {
+            int n = in.read(_raw, 0, _raw.length);
+            if (n < 0) {
+                return false;
+            }
+            _pos = 0;
+            _limit = _filter.filter(_raw, 0, n, _converted, 0);
+        }
+        return true;
+    }
+
+    /** Number of characters read from the underlying reader at once. */
+    private static final int BUFFER_SIZE = 8192;
+
+    /** Converts what I read. */
+    private final EnigmaFilter _filter;
+
+    /** Characters read from the underlying reader. */
+    private final char[] _raw = new char[BUFFER_SIZE];
+
+    /** Converted characters; _converted[_pos .. _limit-1] are unread. */
+    private final char[] _converted =
+        new char[EnigmaFilter.MAX_EXPANSION * BUFFER_SIZE];
+
+    /** Index of the next unread character in _converted. */
+    private int _pos;
+
+    /** End of the converted characters in _converted. */
+    private int _limit;
+}
@@ -0,0 +1,303 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static enigma.EnigmaException.*;
+
+/** A server that converts messages for clients on the local machine,
+ *  so that configurations are read once rather than once per job.  It
+ *  listens on a Unix domain socket or a loopback TCP port and handles
+ *  each connection on its own (virtual, where available) thread.
+ *
+ *  Clients send UTF-8 requests, any number of which may be sent before
+ *  reading the replies.  A request is a line
+ *      CONVERT NAME N
+ *  where NAME names one of the server's configurations, followed by a
+ *  settings line in the format Main accepts, followed by N message
+ *  lines.  The reply is a line "OK" followed by the N converted lines
+ *  in groups of five, or a line "ERROR MESSAGE" if the request could not
+ *  be carried out.  The line "QUIT" ends the connection.
+ *  @author AldrinSembrana
+ */
+class EnigmaServer implements AutoCloseable {
+
+    /** Character set of requests and replies. */
+    static final Charset CHARSET = StandardCharsets.UTF_8;
+
+    /** A server for the configurations in CATALOGS, indexed by the names
+     *  clients use for them. */
+    EnigmaServer(Map<String, Catalog> catalogs) {
+        _pools = new HashMap<>();
+        for (Map.Entry<String, Catalog> entry : catalogs.entrySet()) {
+            _pools.put(entry.getKey(), new MachinePool(entry.getValue()));
+        }
+    }
+
+    /** Start listening on ADDRESS, which is either a port number, for a
+     *  TCP port on the loopback interface (0 for any free port), or the
+     *  path of a Unix domain socket.  A socket left at that path by a
+     *  server that is no longer running is removed first.  Return the
+     *  bound address. */
+    SocketAddress bind(String address) {
+        try {
+            if (address.matches("\\d+")) {
+                _server = ServerSocketChannel.open();
+                _server.bind(new InetSocketAddress(
+                    InetAddress.getLoopbackAddress(),
+                    Integer.parseInt(address)));
+            } else {
+                UnixDomainSocketAddress unix =
+                    UnixDomainSocketAddress.of(address);
+                removeStale(unix);
+                _server =
+                    ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+                _server.bind(unix);
+                _socketFile = unix.getPath();
+            }
+            return _server.getLocalAddress();
+        } catch (IOException | IllegalArgumentException excp) {
+            close();
+            throw error("could not listen on %s: %s", address,
+                        excp.getMessage());
+        }
+    }
+
+    /** Delete the file at ADDRESS if it is a socket that no server
+     *  accepts connections on. */
+    private static void removeStale(UnixDomainSocketAddress address)
+        throws IOException {
+        Path path = address.getPath();
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(path, BasicFileAttributes.class,
+                                         LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException excp) {
+            return;
+        }
+        if (!attrs.isOther()) {
+            return;
+        }
+        try (SocketChannel probe = SocketChannel.open(address)) {
+            return;
+        } catch (IOException excp) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /** Accept and serve connections until closed. */
+    void serve() {
+        ExecutorService executor = newExecutor();
+        try {
+            while (true) {
+                SocketChannel client = _server.accept();
+                executor.execute(() -> serve(client));
+            }
+        } catch (ClosedChannelException excp) {
+            return;
+        } catch (IOException excp) {
+            throw error("could not accept connection: %s",
+                        excp.getMessage());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /** Stop accepting connections, and remove my Unix domain socket, if
+     *  any.  Connections already accepted are served to the end. */
+    @Override
+    public void close() {
+        try {
+            if (_server != null) {
+                _server.close();
+            }
+            if (_socketFile != null) {
+                Files.deleteIfExists(_socketFile);
+                _socketFile = null;
+            }
+        } catch (IOException excp) {
+            throw error("could not close server: %s", excp.getMessage());
+        }
+    }
+
+    /** Serve the requests arriving on CLIENT, then close it. */
+    private void serve(SocketChannel client) {
+        try (client) {
+            serve(Channels.newInputStream(client),
+                  Channels.newOutputStream(client));
+        } catch (IOException | EnigmaException excp) {
+            return;
+        }
+    }
+
+    /** Serve the requests read from IN, writing the replies to OUT,
+     *  until IN ends or a QUIT request arrives.  Replies are flushed
+     *  whenever no further request is waiting. */
+    void serve(InputStream in, OutputStream out) {
+        CharSource requests = new CharSource(in, CHARSET,
+                                             CharSource.DEFAULT_SIZE);
+        GroupWriter replies = new GroupWriter(out, CHARSET,
+                                              GroupWriter.DEFAULT_SIZE);
+        try {
+            while (true) {
+                String header = readLine(requests);
+                if (header == null || header.equals("QUIT")) {
+                    return;
+                }
+                String[] fields = header.split(" ");
+                if (fields.length != 3 || !fields[0].equals("CONVERT")
+                    || !fields[2].matches("\\d{1,9}")) {
+                    reply(replies, "ERROR malformed request");
+                    return;
+                }
+                int count = Integer.parseInt(fields[2]);
+                convert(_pools.get(fields[1]), fields[1], requests, count,
+                        replies);
+                if (!requests.ready()) {
+                    replies.flush();
+                }
+            }
+        } finally {
+            replies.flush();
+        }
+    }
+
+    /** Carry out a request for COUNT messages from REQUESTS for the
+     *  configuration named NAME, whose machines are in POOL (null if
+     *  there is no such configuration), writing the reply to REPLIES. */
+    private void convert(MachinePool pool, String name, CharSource requests,
+                         int count, GroupWriter replies) {
+        String settings = readLine(requests);
+        Machine mach = null;
+        String problem = null;
+        if (pool == null) {
+            problem = String.format("no configuration named %s", name);
+        } else if (settings == null || !settings.startsWith("*")) {
+            problem = "missing settings line";
+        } else {
+            mach = pool.take();
+            try {
+                Main.setUp(mach, settings);
+            } catch (EnigmaException excp) {
+                problem = excp.getMessage();
+            }
+        }
+        if (problem != null) {
+            for (int i = 0; i < count; i += 1) {
+                readLine(requests);
+            }
+            reply(replies, "ERROR " + problem);
+        } else {
+            reply(replies, "OK");
+            Alphabet alpha = mach.alphabet();
+            for (int i = 0; i < count; i += 1) {
+                for (int c = requests.read(); c >= 0 && c != '\n';
+                     c = requests.read()) {
+                    if (!Main.isBlank(c)) {
+                        replies.write(alpha.toChar(
+                            mach.convert(alpha.toInt((char) c))));
+                    }
+                }
+                replies.endLine();
+            }
+        }
+        if (mach != null) {
+            pool.give(mach);
+        }
+    }
+
+    /** Return the next line from SOURCE, without its terminator, or null
+     *  if SOURCE is used up. */
+    private static String readLine(CharSource source) {
+        int c = source.read();
+        if (c < 0) {
+            return null;
+        }
+        StringBuilder line = new StringBuilder();
+        for (; c >= 0 && c != '\n'; c = source.read()) {
+            line.append((char) c);
+        }
+        return line.toString();
+    }
+
+    /** Write the line LINE, as is, to REPLIES. */
+    private static void reply(GroupWriter replies, String line) {
+        byte[] bytes = (line + System.lineSeparator()).getBytes(CHARSET);
+        replies.write(bytes);
+    }
+
+    /** Return an executor that runs each task on a new virtual thread if
+     *  this Java has them, and otherwise on a pool of daemon threads. */
+    private static ExecutorService newExecutor() {
+        try {
+            Method virtual =
+                Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtual.invoke(null);
+        } catch (ReflectiveOperationException excp) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "enigma-client");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /** Machines for one configuration that are not in use, so that
+     *  requests reuse them rather than making new ones. */
+    private static class MachinePool {
+        /** A pool of machines drawn from CATALOG. */
+        MachinePool(Catalog catalog) {
+            _catalog = catalog;
+        }
+
+        /** Return an idle machine, making one if there are none. */
+        Machine take() {
+            Machine mach = _idle.poll();
+            return mach == null ? _catalog.newMachine() : mach;
+        }
+
+        /** Return MACH, which came from take(), to the pool. */
+        void give(Machine mach) {
+            _idle.add(mach);
+        }
+
+        /** Source of my machines. */
+        private final Catalog _catalog;
+
+        /** Idle machines. */
+        private final ConcurrentLinkedQueue<Machine> _idle =
+            new ConcurrentLinkedQueue<>();
+    }
+
+    /** Machine pools, indexed by configuration name. */
+    private final Map<String, MachinePool> _pools;
+
+    /** The socket I listen on, once bound. */
+    private ServerSocketChannel _server;
+
+    /** The file of my Unix domain socket, if I am bound to one. */
+    private Path _socketFile;
+}
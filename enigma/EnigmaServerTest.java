@@ -0,0 +1,156 @@
+package enigma;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the EnigmaServer class.
+ *  @author AldrinSembrana
+ */
+public class EnigmaServerTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return a server for one configuration, "naval". */
+    private static EnigmaServer server() {
+        HashMap<String, Catalog> catalogs = new HashMap<>();
+        catalogs.put("naval", new Catalog(UPPER, 5, 3, navalRotors()));
+        return new EnigmaServer(catalogs);
+    }
+
+    /** Return TEXT with "\n" replaced by the line separator. */
+    private static String lines(String text) {
+        return text.replace("\n", System.lineSeparator());
+    }
+
+    private static final String REQUESTS =
+        "CONVERT naval 2\n"
+        + "* B Beta III IV I AXLE (HQ) (EX) (IP) (TR) (BY)\n"
+        + "FROM HIS SHOULDER HIAWATHA\n"
+        + "TOOK THE CAMERA OF ROSEWOOD\n"
+        + "CONVERT army 1\n"
+        + "* B Beta III IV I AXLE\n"
+        + "HELLO\n"
+        + "CONVERT naval 1\n"
+        + "* B Beta III IV X AXLE\n"
+        + "HELLO\n"
+        + "CONVERT naval 0\n"
+        + "* B Beta III IV I AXLE\n"
+        + "CONVERT naval 1\n"
+        + "* B Beta III IV I AXLE (HQ) (EX) (IP) (TR) (BY)\n"
+        + "FROMH ISSHO\n"
+        + "QUIT\n"
+        + "CONVERT naval 1\n";
+
+    private static final String REPLIES =
+        "OK\n"
+        + "QVPQS OKOIL PUBKJ ZPISF XDW\n"
+        + "BHCNS CXNUO AATZX SRCFY DGU\n"
+        + "ERROR no configuration named army\n"
+        + "ERROR invalid rotor given available rotors\n"
+        + "OK\n"
+        + "OK\n"
+        + "QVPQS OKOIL \n";
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testPipelinedRequests() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        server().serve(new ByteArrayInputStream(
+                           REQUESTS.getBytes(EnigmaServer.CHARSET)), out);
+        assertEquals(lines(REPLIES),
+                     new String(out.toByteArray(), EnigmaServer.CHARSET));
+    }
+
+    @Test
+    public void testMalformedRequest() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        server().serve(new ByteArrayInputStream(
+                           "CONVERT naval\nCONVERT naval 0\n"
+                           .getBytes(EnigmaServer.CHARSET)), out);
+        assertEquals(lines("ERROR malformed request\n"),
+                     new String(out.toByteArray(), EnigmaServer.CHARSET));
+    }
+
+    @Test
+    public void testLoopback() throws IOException, InterruptedException {
+        EnigmaServer server = server();
+        InetSocketAddress address = (InetSocketAddress) server.bind("0");
+        Thread serving = new Thread(server::serve);
+        serving.start();
+        try {
+            for (int k = 0; k < 2; k += 1) {
+                try (Socket client = new Socket(address.getAddress(),
+                                                address.getPort())) {
+                    OutputStream out = client.getOutputStream();
+                    out.write(REQUESTS.getBytes(EnigmaServer.CHARSET));
+                    out.flush();
+                    InputStream in = client.getInputStream();
+                    assertEquals(lines(REPLIES),
+                                 new String(in.readAllBytes(),
+                                            EnigmaServer.CHARSET));
+                }
+            }
+        } finally {
+            server.close();
+            serving.join();
+        }
+    }
+
+    @Test
+    public void testUnixSocketFile() throws IOException {
+        Path dir = Files.createTempDirectory("enigma");
+        Path file = dir.resolve("server.sock");
+        try {
+            try (ServerSocketChannel stale =
+                     ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+                stale.bind(UnixDomainSocketAddress.of(file));
+            }
+            assertTrue(Files.exists(file));
+            EnigmaServer server = server();
+            server.bind(file.toString());
+            try {
+                server().bind(file.toString());
+                fail("bound a socket that is in use");
+            } catch (EnigmaException excp) {
+                assertTrue(Files.exists(file));
+            } finally {
+                server.close();
+            }
+            assertFalse(Files.exists(file));
+
+            Files.createFile(file);
+            try {
+                server().bind(file.toString());
+                fail("bound over a regular file");
+            } catch (EnigmaException excp) {
+                assertTrue(Files.isRegularFile(file));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.delete(dir);
+        }
+    }
+}
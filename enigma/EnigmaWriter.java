@@ -0,0 +1,59 @@
+package enigma;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/** A Writer that converts characters with an EnigmaFilter as they are
+ *  written, passing the results to another Writer.
+ *  @author AldrinSembrana
+ */
+public class EnigmaWriter extends FilterWriter {
+
+    /** A writer that passes characters converted by FILTER to OUT. */
+    public EnigmaWriter(Writer out, EnigmaFilter filter) {
+        super(out);
+        _filter = filter;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        int n = _filter.filter((char) c, _converted, 0);
+        out.write(_converted, 0, n);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        while (len > 0) {
+            int k = Math.min(len, BUFFER_SIZE);
+            int n = _filter.filter(cbuf, off, k, _converted, 0);
+            out.write(_converted, 0, n);
+            off += k;
+            len -= k;
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        while (len > 0) {
+            int k = Math.min(len, BUFFER_SIZE);
+            str.getChars(off, off + k, _raw, 0);
+            write(_raw, 0, k);
+            off += k;
+            len -= k;
+        }
+    }
+
+    /** Number of characters converted at once. */
+    private static final int BUFFER_SIZE = 8192;
+
+    /** Converts what I write. */
+    private final EnigmaFilter _filter;
+
+    /** Characters of a string being written. */
+    private final char[] _raw = new char[BUFFER_SIZE];
+
+    /** Converted characters. */
+    private final char[] _converted =
+        new char[EnigmaFilter.MAX_EXPANSION * BUFFER_SIZE];
+}
@@ -0,0 +1,200 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+
+import static enigma.EnigmaException.*;
+
+/** Writes message lines in groups of five characters, each complete
+ *  group followed by a blank, straight into a reusable byte buffer that
+ *  is written to an output stream or channel only when full or when
+ *  flushed.  ASCII characters are stored directly; only others go
+ *  through a CharsetEncoder.  The buffer for a channel is direct, so
+ *  the operating system writes straight from it.
+ *  @author AldrinSembrana
+ */
+class GroupWriter {
+
+    /** Default size of my buffer in bytes. */
+    static final int DEFAULT_SIZE = 1 << 16;
+
+    /** Number of characters in a group. */
+    static final int GROUP = 5;
+
+    /** A writer onto OUT that encodes with CHARSET and buffers up to
+     *  SIZE bytes. */
+    GroupWriter(OutputStream out, Charset charset, int size) {
+        _out = out;
+        _channel = null;
+        _charset = charset;
+        _buffer = ByteBuffer.allocate(Math.max(size, MIN_SIZE));
+        _newline = System.lineSeparator().getBytes(charset);
+    }
+
+    /** A writer onto OUT that encodes with CHARSET and buffers up to
+     *  SIZE bytes in a direct buffer. */
+    GroupWriter(WritableByteChannel out, Charset charset, int size) {
+        _out = null;
+        _channel = out;
+        _charset = charset;
+        _buffer = ByteBuffer.allocateDirect(Math.max(size, MIN_SIZE));
+        _newline = System.lineSeparator().getBytes(charset);
+    }
+
+    /** A writer onto OUT using the default charset. */
+    GroupWriter(OutputStream out) {
+        this(out, Charset.defaultCharset(), DEFAULT_SIZE);
+    }
+
+    /** Add C to the current line. */
+    void write(char c) {
+        if (_length + SLACK > _buffer.capacity()) {
+            drain();
+        }
+        if (c < ASCII_LIMIT) {
+            _buffer.put(_length, (byte) c);
+            _length += 1;
+        } else {
+            encode(c);
+        }
+        _column += 1;
+        if (_column == GROUP) {
+            _buffer.put(_length, (byte) ' ');
+            _length += 1;
+            _column = 0;
+        }
+    }
+
+    /** Add the LEN characters of BUF starting at OFF to the current
+     *  line. */
+    void write(char[] buf, int off, int len) {
+        for (int i = off; i < off + len; i += 1) {
+            write(buf[i]);
+        }
+    }
+
+    /** End the current line. */
+    void endLine() {
+        put(_newline);
+        _column = 0;
+    }
+
+    /** Write BYTES, which hold complete lines already formatted and
+     *  encoded, after everything written so far. */
+    void write(byte[] bytes) {
+        if (bytes.length > _buffer.capacity()) {
+            drain();
+            send(ByteBuffer.wrap(bytes));
+        } else {
+            put(bytes);
+        }
+    }
+
+    /** Write out and flush everything written so far. */
+    void flush() {
+        drain();
+        if (_out == null) {
+            return;
+        }
+        try {
+            _out.flush();
+        } catch (IOException excp) {
+            throw error("could not write output: %s", excp.getMessage());
+        }
+    }
+
+    /** Store the encoding of the non-ASCII character C in _buffer. */
+    private void encode(char c) {
+        if (_encoder == null) {
+            _encoder = _charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            _single = CharBuffer.allocate(1);
+        }
+        _single.clear();
+        _single.put(c).flip();
+        _buffer.limit(_buffer.capacity()).position(_length);
+        _encoder.reset();
+        _encoder.encode(_single, _buffer, true);
+        _encoder.flush(_buffer);
+        _length = _buffer.position();
+    }
+
+    /** Add BYTES to _buffer, draining it first if they do not fit. */
+    private void put(byte[] bytes) {
+        if (_length + bytes.length > _buffer.capacity()) {
+            drain();
+        }
+        _buffer.position(_length);
+        _buffer.put(bytes);
+        _length += bytes.length;
+    }
+
+    /** Write the contents of _buffer out and empty it. */
+    private void drain() {
+        _buffer.position(0).limit(_length);
+        send(_buffer);
+        _buffer.clear();
+        _length = 0;
+    }
+
+    /** Write the remaining contents of BYTES to my stream or channel. */
+    private void send(ByteBuffer bytes) {
+        try {
+            if (_out != null) {
+                _out.write(bytes.array(),
+                           bytes.arrayOffset() + bytes.position(),
+                           bytes.remaining());
+            } else {
+                while (bytes.hasRemaining()) {
+                    _channel.write(bytes);
+                }
+            }
+        } catch (IOException excp) {
+            throw error("could not write output: %s", excp.getMessage());
+        }
+    }
+
+    /** Values of char below this are ASCII. */
+    private static final int ASCII_LIMIT = 0x80;
+
+    /** Room needed in _buffer to add one character and a blank. */
+    private static final int SLACK = 8;
+
+    /** Smallest buffer size. */
+    private static final int MIN_SIZE = 64;
+
+    /** Stream I write to, or null if I write to _channel. */
+    private final OutputStream _out;
+
+    /** Channel I write to, or null if I write to _out. */
+    private final WritableByteChannel _channel;
+
+    /** Charset of my output. */
+    private final Charset _charset;
+
+    /** Encoder for non-ASCII characters, once needed. */
+    private CharsetEncoder _encoder;
+
+    /** Encoded output not yet written out is the first _length bytes of
+     *  _buffer. */
+    private final ByteBuffer _buffer;
+
+    /** Number of bytes in _buffer. */
+    private int _length;
+
+    /** Number of characters in the current group. */
+    private int _column;
+
+    /** Holds a single character to be encoded, once needed. */
+    private CharBuffer _single;
+
+    /** Encoded line separator. */
+    private final byte[] _newline;
+}
@@ -0,0 +1,106 @@
+package enigma;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import static enigma.EnigmaException.*;
+
+/** A cache of KeystreamTables for machines drawn from one Catalog,
+ *  keyed by rotor order, fixed-rotor settings and plugboard, holding at
+ *  most a given number of bytes of tables.  The least recently used
+ *  tables are dropped first.  Safe for use by several threads.
+ *  @author AldrinSembrana
+ */
+class KeystreamCache {
+
+    /** A cache for machines from CATALOG whose tables together occupy
+     *  at most BUDGET bytes. */
+    KeystreamCache(Catalog catalog, long budget) {
+        _catalog = catalog;
+        _budget = budget;
+        _tables = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /** Return a KeystreamEngine that converts as MACH would from its
+     *  current state, or null if a table for MACH's configuration would
+     *  not fit in my budget.  MACH is not modified. */
+    KeystreamEngine engine(Machine mach) {
+        if (mach.catalog() != _catalog) {
+            throw error("machine is from another catalog");
+        }
+        CompiledMachine comp = mach.compile();
+        if (KeystreamTable.bytes(comp) > _budget) {
+            return null;
+        }
+        String key = key(mach);
+        KeystreamTable table;
+        synchronized (this) {
+            table = _tables.get(key);
+        }
+        if (table == null) {
+            table = new KeystreamTable(comp);
+            synchronized (this) {
+                KeystreamTable old = _tables.putIfAbsent(key, table);
+                if (old != null) {
+                    table = old;
+                } else {
+                    _used += table.bytes();
+                    trim();
+                }
+            }
+        }
+        return new KeystreamEngine(table, comp);
+    }
+
+    /** Return the number of bytes of tables I hold. */
+    synchronized long used() {
+        return _used;
+    }
+
+    /** Return the number of tables I hold. */
+    synchronized int size() {
+        return _tables.size();
+    }
+
+    /** Drop least recently used tables until I am within budget. */
+    private void trim() {
+        Iterator<KeystreamTable> tables = _tables.values().iterator();
+        while (_used > _budget && tables.hasNext()) {
+            _used -= tables.next().bytes();
+            tables.remove();
+        }
+    }
+
+    /** Return a string identifying everything about MACH's
+     *  configuration that a KeystreamTable depends on: its rotors, the
+     *  settings of those that do not move, and its plugboard. */
+    private static String key(Machine mach) {
+        StringBuilder key = new StringBuilder();
+        Alphabet alpha = mach.alphabet();
+        for (int k = 0; k < mach.numRotors(); k += 1) {
+            key.append(mach.getRotor(k).name()).append(' ');
+        }
+        for (int k = 0; k < mach.numRotors(); k += 1) {
+            if (!mach.getRotor(k).rotates()) {
+                key.append(alpha.toChar(mach.setting(k)));
+            }
+        }
+        key.append(' ');
+        for (int c = 0; c < alpha.size(); c += 1) {
+            key.append(alpha.toChar(mach.plugboard().permute(c)));
+        }
+        return key.toString();
+    }
+
+    /** The catalog of the machines I serve. */
+    private final Catalog _catalog;
+
+    /** Maximum number of bytes of tables I hold. */
+    private final long _budget;
+
+    /** Number of bytes of tables I hold. */
+    private long _used;
+
+    /** My tables, in order of least recent use. */
+    private final LinkedHashMap<String, KeystreamTable> _tables;
+}
@@ -0,0 +1,61 @@
+package enigma;
+
+import static enigma.EnigmaException.*;
+
+/** A converter that runs on a KeystreamTable: each character costs one
+ *  lookup to step the machine and one to convert.  Converts exactly as
+ *  the Machine whose configuration the table describes.
+ *  @author AldrinSembrana
+ */
+class KeystreamEngine {
+
+    /** An engine using TABLE whose moving rotors start at the settings
+     *  MACH currently has. */
+    KeystreamEngine(KeystreamTable table, CompiledMachine mach) {
+        _table = table;
+        _alphabet = mach.alphabet();
+        _state = table.state(mach);
+    }
+
+    /** Returns the result of converting the input character C (as an
+     *  index in the range 0..alphabet size - 1), after first advancing
+     *  the machine. */
+    int convert(int c) {
+        _state = _table.next(_state);
+        return _table.convert(_state, c);
+    }
+
+    /** Convert the LEN character indices of IN starting at OFF, storing
+     *  the results at the same positions of OUT, which may be IN. */
+    void convert(int[] in, int off, int len, int[] out) {
+        int state = _state;
+        for (int i = off; i < off + len; i += 1) {
+            state = _table.next(state);
+            out[i] = _table.convert(state, in[i]);
+        }
+        _state = state;
+    }
+
+    /** Returns the encoding/decoding of MSG, updating my state
+     *  accordingly.  All characters of MSG must be in the alphabet. */
+    String convert(String msg) {
+        char[] result = new char[msg.length()];
+        for (int i = 0; i < result.length; i += 1) {
+            int c = _alphabet.toInt(msg.charAt(i));
+            if (c < 0) {
+                throw error("'%c' is not in the alphabet", msg.charAt(i));
+            }
+            result[i] = _alphabet.toChar(convert(c));
+        }
+        return new String(result);
+    }
+
+    /** The table I run on. */
+    private final KeystreamTable _table;
+
+    /** The alphabet of the machine. */
+    private final Alphabet _alphabet;
+
+    /** Index of the current settings of the moving rotors. */
+    private int _state;
+}
@@ -0,0 +1,109 @@
+package enigma;
+
+/** The complete behavior of a machine with a fixed rotor order,
+ *  fixed-rotor settings and plugboard, tabulated over every setting of
+ *  its moving rotors.  For each such state the table holds the whole
+ *  plugboard-rotors-reflector mapping and the state that follows it, so
+ *  converting a character is one lookup for the step and one for the
+ *  character.  A KeystreamTable is immutable; KeystreamEngine holds the
+ *  current state.
+ *  @author AldrinSembrana
+ */
+class KeystreamTable {
+
+    /** A table for the configuration of MACH, which is not modified.
+     *  Requires that bytes(MACH) be small enough to allocate. */
+    KeystreamTable(CompiledMachine mach) {
+        int n = mach.alphabet().size();
+        int first = mach.firstMoving();
+        _size = n;
+        _firstMoving = first;
+        _numStates = (int) states(mach);
+        _table = new char[_numStates * n];
+        _next = new int[_numStates];
+        CompiledMachine scratch = mach.copy();
+        for (int state = 0; state < _numStates; state += 1) {
+            setState(scratch, state);
+            for (int c = 0; c < n; c += 1) {
+                _table[state * n + c] = (char) scratch.scramble(c);
+            }
+            scratch.advance();
+            _next[state] = state(scratch);
+        }
+    }
+
+    /** Return the number of settings of the moving rotors of MACH, or
+     *  Long.MAX_VALUE if that exceeds Integer.MAX_VALUE. */
+    private static long states(CompiledMachine mach) {
+        long states = 1;
+        int n = mach.alphabet().size();
+        for (int k = mach.firstMoving(); k < mach.numRotors(); k += 1) {
+            states *= n;
+            if (states > Integer.MAX_VALUE) {
+                return Long.MAX_VALUE;
+            }
+        }
+        return states;
+    }
+
+    /** Return the approximate number of bytes a table for MACH would
+     *  occupy, or Long.MAX_VALUE if it could not be built at all. */
+    static long bytes(CompiledMachine mach) {
+        long states = states(mach);
+        int n = mach.alphabet().size();
+        if (states > Integer.MAX_VALUE / n) {
+            return Long.MAX_VALUE;
+        }
+        return states * n * Character.BYTES + states * Integer.BYTES;
+    }
+
+    /** Return the number of bytes I occupy, as estimated by bytes. */
+    long bytes() {
+        return (long) _table.length * Character.BYTES
+            + (long) _next.length * Integer.BYTES;
+    }
+
+    /** Return the state index of the current settings of MACH's moving
+     *  rotors. */
+    int state(CompiledMachine mach) {
+        int state = 0;
+        for (int k = _firstMoving; k < mach.numRotors(); k += 1) {
+            state = state * _size + mach.setting(k);
+        }
+        return state;
+    }
+
+    /** Set the moving rotors of MACH to the settings of STATE. */
+    void setState(CompiledMachine mach, int state) {
+        for (int k = mach.numRotors() - 1; k >= _firstMoving; k -= 1) {
+            mach.set(k, state % _size);
+            state /= _size;
+        }
+    }
+
+    /** Return the state that follows STATE. */
+    int next(int state) {
+        return _next[state];
+    }
+
+    /** Return the conversion of character index C in STATE, which is
+     *  the state after stepping. */
+    int convert(int state, int c) {
+        return _table[state * _size + c];
+    }
+
+    /** Size of the alphabet. */
+    private final int _size;
+
+    /** Index of the leftmost moving slot. */
+    private final int _firstMoving;
+
+    /** Number of settings of the moving rotors. */
+    private final int _numStates;
+
+    /** Entry STATE * _size + C is the conversion of C in STATE. */
+    private final char[] _table;
+
+    /** _next[STATE] is the state that follows STATE. */
+    private final int[] _next;
+}
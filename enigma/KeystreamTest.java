@@ -0,0 +1,72 @@
+package enigma;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for KeystreamTable, KeystreamEngine and
+ *  KeystreamCache.
+ *  @author AldrinSembrana
+ */
+public class KeystreamTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testEngineMatchesMachine() {
+        String[] rotors = { "B", "Gamma", "VI", "II", "VIII" };
+        String plug = "(HQ) (EX) (IP) (TR) (BY)";
+        Machine mach = navalMachine(rotors, "QYDZ", plug);
+        KeystreamCache cache = new KeystreamCache(mach.catalog(), 1 << 22);
+        KeystreamEngine engine = cache.engine(mach);
+        assertNotNull(engine);
+        String msg = randomText(UPPER_STRING, 40000,
+                                                    new Random(9));
+        assertEquals(mach.convert(msg), engine.convert(msg));
+    }
+
+    @Test
+    public void testCacheReuse() {
+        String[] rotors = { "B", "Beta", "III", "IV", "I" };
+        Machine mach1 = navalMachine(rotors, "AXLE", "");
+        Machine mach2 = mach1.catalog().newMachine();
+        mach2.insertRotors(rotors);
+        mach2.setRotors("AMQC");
+        mach2.setPlugboard(new Permutation("", UPPER));
+        KeystreamCache cache = new KeystreamCache(mach1.catalog(), 1 << 22);
+        KeystreamEngine engine1 = cache.engine(mach1);
+        KeystreamEngine engine2 = cache.engine(mach2);
+        assertEquals(1, cache.size());
+        assertEquals(mach1.convert("FROMHISSHOULDER"),
+                     engine1.convert("FROMHISSHOULDER"));
+        assertEquals(mach2.convert("FROMHISSHOULDER"),
+                     engine2.convert("FROMHISSHOULDER"));
+        mach2.setRotors("BMQC");
+        cache.engine(mach2);
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testBudget() {
+        String[] rotors = { "B", "Beta", "III", "IV", "I" };
+        Machine mach = navalMachine(rotors, "AXLE", "");
+        KeystreamCache small = new KeystreamCache(mach.catalog(), 1000);
+        assertNull(small.engine(mach));
+        long one = KeystreamTable.bytes(mach.compile());
+        KeystreamCache cache = new KeystreamCache(mach.catalog(), one);
+        cache.engine(mach);
+        mach.setRotors("BXLE");
+        cache.engine(mach);
+        assertEquals(1, cache.size());
+        assertEquals(one, cache.used());
+    }
+}
@@ -1,9 +1,6 @@
 package enigma;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Collection;
-import java.util.LinkedHashMap;
 
 import static enigma.EnigmaException.*;
 
@@ -17,50 +14,61 @@ class Machine {
      *  available rotors. */
     Machine(Alphabet alpha, int numRotors, int pawls,
             Collection<Rotor> allRotors) {
-        _alphabet = alpha;
-        _numRotors = numRotors;
-        _pawls = pawls;
-        _allRotors = new HashMap<>();
-        _currRotors = new LinkedHashMap<>();
-        for (Rotor rotor : allRotors) {
-            _allRotors.put(rotor.name(), rotor);
-        }
+        this(new Catalog(alpha, numRotors, pawls, allRotors));
+    }
+
+    /** A new Enigma machine whose alphabet, slots, pawls and available
+     *  rotors are given by CATALOG.  The catalog's rotors are shared,
+     *  never modified: my rotor settings are my own. */
+    Machine(Catalog catalog) {
+        _catalog = catalog;
+        _slots = new Rotor[0];
+        _positions = new int[0];
+    }
+
+    /** Return the catalog of rotors I draw from. */
+    Catalog catalog() {
+        return _catalog;
     }
 
     /** Return the number of rotor slots I have. */
     int numRotors() {
-        return _numRotors;
+        return _catalog.numRotors();
     }
 
     /** Return the number pawls (and thus rotating rotors) I have. */
     int numPawls() {
-        return _pawls;
+        return _catalog.numPawls();
     }
 
     /** Return Rotor #K, where Rotor #0 is the reflector, and Rotor
      *  #(numRotors()-1) is the fast Rotor.  Modifying this Rotor has
-     *  undefined results. */
+     *  undefined results.  The Rotor may be shared with other machines,
+     *  so its setting() is not mine; use setting(K) instead. */
     Rotor getRotor(int k) {
-        ArrayList<Rotor> currRotorArr = new
-                ArrayList<Rotor>(_currRotors.values());
-        return currRotorArr.get(k);
+        return _slots[k];
+    }
+
+    /** Return the current setting of Rotor #K. */
+    int setting(int k) {
+        return _positions[k];
     }
 
     Alphabet alphabet() {
-        return _alphabet;
+        return _catalog.alphabet();
     }
 
     /** Set my rotor slots to the rotors named ROTORS from my set of
      *  available rotors (ROTORS[0] names the reflector).
      *  Initially, all rotors are set at their 0 setting. */
     void insertRotors(String[] rotors) {
-        _currRotors.clear();
+        Rotor[] slots = new Rotor[rotors.length];
         int numRotating = 0;
         int numFixed = 0;
         for (int i = 0; i < rotors.length; i++) {
-            if (_allRotors.get(rotors[i]) != null) {
-                _currRotors.put(rotors[i], _allRotors.get(rotors[i]));
-                if (_allRotors.get(rotors[i]).rotates()) {
+            if (_catalog.get(rotors[i]) != null) {
+                slots[i] = _catalog.get(rotors[i]);
+                if (slots[i].rotates()) {
                     numRotating++;
                 } else {
                     numFixed++;
@@ -73,15 +81,72 @@ class Machine {
                 || (numFixed != numRotors() - numPawls())) {
             throw new EnigmaException("Wrong rotor types");
         }
+        for (int i = 0; i < slots.length; i++) {
+            for (int j = 0; j < i; j++) {
+                if (slots[i] == slots[j]) {
+                    throw error("rotor %s used more than once", rotors[i]);
+                }
+            }
+        }
+        if (!slots[0].reflecting()) {
+            throw error("rotor %s is not a reflector", rotors[0]);
+        }
+        for (int i = 1; i < slots.length; i++) {
+            if (slots[i].reflecting()) {
+                throw error("reflector %s must be leftmost", rotors[i]);
+            } else if (slots[i].rotates() != (i >= numRotors() - numPawls())) {
+                throw error("rotor %s is in the wrong slot", rotors[i]);
+            }
+        }
+        _slots = slots;
+        _positions = new int[slots.length];
+        _odometer = new Odometer(slots);
+        _reflection = null;
     }
 
     /** Set my rotors according to SETTING, which must be a string of
      *  numRotors()-1 characters in my alphabet. The first letter refers
      *  to the leftmost rotor setting (not counting the reflector).  */
     void setRotors(String setting) {
-        for (int i = 0; i < setting.length(); i++) {
-            getRotor(i + 1).set(alphabet().toInt(setting.charAt(i)));
+        _positions = parseSetting(setting);
+        _reflection = null;
+    }
+
+    /** Return the settings of my slots, in slot order, given by SETTING
+     *  in the format accepted by setRotors.  The reflector's entry is
+     *  0. */
+    private int[] parseSetting(String setting) {
+        if (setting.length() != _slots.length - 1) {
+            throw error("wrong number of rotor settings in %s", setting);
+        }
+        int[] positions = new int[_slots.length];
+        for (int i = 1; i < positions.length; i++) {
+            positions[i] = alphabet().toInt(setting.charAt(i - 1));
+            if (positions[i] < 0) {
+                throw error("setting '%c' is not in the alphabet",
+                            setting.charAt(i - 1));
+            }
+        }
+        return positions;
+    }
+
+    /** Advance my rotors to the settings they would have after N more
+     *  characters were converted, without converting them. */
+    void seek(long n) {
+        _odometer.advance(_positions, n);
+    }
+
+    /** Return the settings, in the format accepted by setRotors, that my
+     *  current rotors would have after converting N characters starting
+     *  from SETTING.  Does not change my state. */
+    String stateAfter(String setting, long n) {
+        int[] positions = parseSetting(setting);
+        _odometer.advance(positions, n);
+        StringBuilder result = new StringBuilder();
+        for (int i = 1; i < positions.length; i++) {
+            result.append(alphabet().toChar(positions[i]));
         }
+        return result.toString();
     }
 
     /** Return the current plugboard's permutation. */
@@ -99,80 +164,159 @@ class Machine {
      *  the machine. */
     int convert(int c) {
         advanceRotors();
-        if (Main.verbose()) {
-            System.err.printf("[");
-            for (int r = 1; r < numRotors(); r += 1) {
-                System.err.printf("%c",
-                        alphabet().toChar(getRotor(r).setting()));
-            }
-            System.err.printf("] %c -> ", alphabet().toChar(c));
+        if (_tracer != Tracer.NONE) {
+            return traceConvert(c);
         }
+        return plugboard().permute(applyRotors(plugboard().permute(c)));
+    }
+
+    /** Return convert(C), without advancing first, reporting each stage
+     *  to my tracer.  A C outside the alphabet is reported as the letter
+     *  the plugboard wraps it to. */
+    private int traceConvert(int c) {
+        c = plugboard().wrap(c);
+        _tracer.start(_positions, c);
         c = plugboard().permute(c);
-        if (Main.verbose()) {
-            System.err.printf("%c -> ", alphabet().toChar(c));
+        _tracer.stage(c);
+        for (int i = _slots.length - 1; i >= 0; i--) {
+            c = getRotor(i).convertForward(c, _positions[i]);
+            _tracer.stage(c);
         }
-        c = applyRotors(c);
-        c = plugboard().permute(c);
-        if (Main.verbose()) {
-            System.err.printf("%c%n", alphabet().toChar(c));
+        for (int j = 1; j < _slots.length; j++) {
+            c = getRotor(j).convertBackward(c, _positions[j]);
+            _tracer.stage(c);
         }
+        c = plugboard().permute(c);
+        _tracer.finish(c);
         return c;
     }
 
+    /** Set my tracer to TRACER, which will be told the stages of each
+     *  later conversion; Tracer.NONE turns tracing off. */
+    void setTracer(Tracer tracer) {
+        _tracer = tracer;
+    }
+
     /** Advance all rotors to their next position. */
     private void advanceRotors() {
-        for (int i = 0; i < _currRotors.size(); i++) {
+        for (int i = 0; i < _slots.length; i++) {
             if (getRotor(i).rotates()) {
-                if (getRotor(i) == getRotor(_currRotors.size() - 1)) {
-                    getRotor(i).advance();
-                } else if (getRotor(i + 1).atNotch()) {
-                    getRotor(i).advance();
-                } else if (getRotor(i - 1).rotates() && getRotor(i).atNotch()) {
-                    getRotor(i).advance();
+                if (i == _slots.length - 1) {
+                    advance(i);
+                } else if (getRotor(i + 1).isNotch(_positions[i + 1])) {
+                    advance(i);
+                } else if (getRotor(i - 1).rotates()
+                           && getRotor(i).isNotch(_positions[i])) {
+                    advance(i);
                 }
             }
         }
     }
 
+    /** Advance Rotor #K one position. */
+    private void advance(int k) {
+        _positions[k] = (_positions[k] + 1) % alphabet().size();
+    }
+
     /** Return the result of applying the rotors to the character C (as an
      *  index in the range 0..alphabet size - 1). */
     private int applyRotors(int c) {
-        int currChar = c;
-        for (int i = _currRotors.size() - 1; i >= 0; i--) {
-            currChar = getRotor(i).convertForward(currChar);
+        int first = numRotors() - numPawls();
+        int[] reflection = reflection();
+        for (int i = _slots.length - 1; i >= first; i--) {
+            c = getRotor(i).convertForward(c, _positions[i]);
         }
-        for (int j = 1; j < _currRotors.size(); j++) {
-            currChar = getRotor(j).convertBackward(currChar);
+        c = reflection[c];
+        for (int j = first; j < _slots.length; j++) {
+            c = getRotor(j).convertBackward(c, _positions[j]);
         }
-        return currChar;
+        return c;
+    }
+
+    /** Return the composition of my rotors that never move (the
+     *  reflector and the fixed rotors beside it) at their current
+     *  settings, as a table taking an index entering the leftmost
+     *  fixed rotor to the index leaving it after reflection. */
+    private int[] reflection() {
+        if (_reflection == null) {
+            int first = numRotors() - numPawls();
+            int[] reflection = new int[alphabet().size()];
+            for (int c = 0; c < reflection.length; c++) {
+                int r = c;
+                for (int i = first - 1; i >= 0; i--) {
+                    r = getRotor(i).convertForward(r, _positions[i]);
+                }
+                for (int j = 1; j < first; j++) {
+                    r = getRotor(j).convertBackward(r, _positions[j]);
+                }
+                reflection[c] = r;
+            }
+            _reflection = reflection;
+        }
+        return _reflection;
     }
 
     /** Returns the encoding/decoding of MSG, updating the state of
      *  the rotors accordingly. */
     String convert(String msg) {
-        String encryption = "";
+        StringBuilder encryption = new StringBuilder(msg.length());
         for (int i = 0; i < msg.length(); i++) {
-            encryption += alphabet().toChar(convert
-                    (alphabet().toInt(msg.charAt(i))));
+            encryption.append(alphabet().toChar(convert
+                    (alphabet().toInt(msg.charAt(i)))));
         }
-        return encryption;
+        return encryption.toString();
     }
 
-    /** Common alphabet of my rotors. */
-    private final Alphabet _alphabet;
+    /** Return a record of my current rotors, their settings and my
+     *  plugboard, from which restore can later return me to this
+     *  state. */
+    MachineState snapshot() {
+        return new MachineState(_catalog, _slots, _odometer, _positions,
+                                _plugboard);
+    }
 
-    /** Number of rotors. */
-    private int _numRotors;
+    /** Return me to STATE, which must have been taken by snapshot() from
+     *  a machine with the same catalog as mine. */
+    void restore(MachineState state) {
+        if (state.catalog() != _catalog) {
+            throw error("machine state is from a different catalog");
+        }
+        if (_positions.length != state.slots().length) {
+            _positions = new int[state.slots().length];
+        }
+        state.positions(_positions);
+        _slots = state.slots();
+        _odometer = state.odometer();
+        _plugboard = state.plugboard();
+        _reflection = null;
+    }
 
-    /** Number of pawls. */
-    private int _pawls;
+    /** Return a CompiledMachine that starts in my current state and
+     *  converts exactly as I would.  Later changes to either machine do
+     *  not affect the other. */
+    CompiledMachine compile() {
+        return new CompiledMachine(this);
+    }
+
+    /** The alphabet, slot counts and rotors available to me. */
+    private final Catalog _catalog;
 
     /** plugboard. */
     private Permutation _plugboard;
 
-    /** HashMap containing all rotors. */
-    private HashMap<String, Rotor> _allRotors;
+    /** My current rotors, in slot order (slot 0 is the reflector). */
+    private Rotor[] _slots;
+
+    /** _positions[K] is the current setting of Rotor #K. */
+    private int[] _positions;
+
+    /** The stepping mechanism of my current rotors. */
+    private Odometer _odometer;
+
+    /** Cached value of reflection(), or null if not yet computed for my
+     *  current rotors and settings. */
+    private int[] _reflection;
 
-    /** Sorted HashMap of current rotors. */
-    private LinkedHashMap<String, Rotor> _currRotors;
+    /** Listener for the stages of my conversions. */
+    private Tracer _tracer = Tracer.NONE;
 }
@@ -0,0 +1,93 @@
+package enigma;
+
+/** An immutable record of the state of a Machine: its rotor order, the
+ *  settings of its rotors and its plugboard.  Rotors and plugboards are
+ *  shared, not copied, and settings are packed into a single long when
+ *  they fit, so taking a snapshot is cheap.
+ *  @author AldrinSembrana
+ */
+final class MachineState {
+
+    /** The state of a machine drawing from CATALOG whose slots hold SLOTS
+     *  (with stepping mechanism ODOMETER) at settings POSITIONS, and
+     *  whose plugboard is PLUGBOARD.  SLOTS is shared and must not be
+     *  modified afterwards; POSITIONS is copied. */
+    MachineState(Catalog catalog, Rotor[] slots, Odometer odometer,
+                 int[] positions, Permutation plugboard) {
+        _catalog = catalog;
+        _slots = slots;
+        _odometer = odometer;
+        _plugboard = plugboard;
+        _bits = 32 - Integer.numberOfLeadingZeros(
+            Math.max(1, catalog.alphabet().size() - 1));
+        if (_bits * positions.length <= Long.SIZE) {
+            long packed = 0;
+            for (int i = positions.length - 1; i >= 0; i -= 1) {
+                packed = (packed << _bits) | positions[i];
+            }
+            _packed = packed;
+            _positions = null;
+        } else {
+            _packed = 0;
+            _positions = positions.clone();
+        }
+    }
+
+    /** Return the catalog of the machine I was taken from. */
+    Catalog catalog() {
+        return _catalog;
+    }
+
+    /** Return the rotors in each slot.  Modifying the result has undefined
+     *  results. */
+    Rotor[] slots() {
+        return _slots;
+    }
+
+    /** Return the stepping mechanism for slots(). */
+    Odometer odometer() {
+        return _odometer;
+    }
+
+    /** Return the plugboard. */
+    Permutation plugboard() {
+        return _plugboard;
+    }
+
+    /** Store the setting of each slot into POSITIONS, which must have
+     *  length slots().length. */
+    void positions(int[] positions) {
+        if (_positions != null) {
+            System.arraycopy(_positions, 0, positions, 0, positions.length);
+        } else {
+            long packed = _packed;
+            long mask = (1L << _bits) - 1;
+            for (int i = 0; i < positions.length; i += 1) {
+                positions[i] = (int) (packed & mask);
+                packed >>>= _bits;
+            }
+        }
+    }
+
+    /** The catalog of the machine I was taken from. */
+    private final Catalog _catalog;
+
+    /** The rotors in each slot. */
+    private final Rotor[] _slots;
+
+    /** The stepping mechanism of _slots. */
+    private final Odometer _odometer;
+
+    /** The plugboard. */
+    private final Permutation _plugboard;
+
+    /** Number of bits used for each setting in _packed. */
+    private final int _bits;
+
+    /** The settings of the slots, _bits bits each with slot 0 in the
+     *  lowest bits, when _positions is null. */
+    private final long _packed;
+
+    /** The settings of the slots, when there are too many to pack. */
+    private final int[] _positions;
+}
@@ -1,11 +1,14 @@
 package enigma;
 
 import java.util.HashMap;
+import java.util.List;
 import org.junit.Test;
 import org.junit.Rule;
 import org.junit.rules.Timeout;
 import static org.junit.Assert.*;
 
+import static enigma.TestUtils.*;
+
 /** The suite of all JUnit tests for the Machine class.
  *  @author
  */
@@ -77,4 +80,60 @@ public class MachineTest {
                 mach.convert("FROMHISSHOULDERHIAWATHA"));
     }
 
+    @Test
+    public void testIndependentMachines() {
+        Catalog catalog = new Catalog(AZ, 5, 3, ROTORS.values());
+        Machine mach1 = catalog.newMachine();
+        Machine mach2 = catalog.newMachine();
+        for (Machine mach : new Machine[] { mach1, mach2 }) {
+            mach.insertRotors(ROTORS1);
+            mach.setRotors(SETTING1);
+            mach.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR) (BY)",
+                                              AZ));
+        }
+        assertEquals("QVPQSOKOIL", mach1.convert("FROMHISSHO"));
+        assertEquals("QVPQSOKOIL", mach2.convert("FROMHISSHO"));
+        assertEquals("PUBKJZPISFXDW", mach1.convert("ULDERHIAWATHA"));
+        assertEquals((UPPER_STRING.indexOf('E') + 23) % 26, mach1.setting(4));
+        assertEquals(0, ROTORS.get("I").setting());
+        assertSame(mach1.getRotor(4), mach2.getRotor(4));
+        assertEquals("PUBKJZPISFXDW", mach2.convert("ULDERHIAWATHA"));
+    }
+
+    @Test
+    public void testSharedRotors() {
+        Rotor rotor = new MovingRotor("I", ROTORS.get("I").permutation(),
+                                      "Q");
+        rotor.set(3);
+        new Catalog(AZ, 5, 3, List.of(rotor));
+        assertTrue(rotor.isShared());
+        try {
+            rotor.advance();
+            fail("advanced a shared rotor");
+        } catch (EnigmaException excp) {
+            assertEquals(3, rotor.setting());
+        }
+        try {
+            rotor.set('A');
+            fail("set a shared rotor");
+        } catch (EnigmaException excp) {
+            assertEquals(3, rotor.setting());
+        }
+    }
+
+    @Test
+    public void testSnapshotRestore() {
+        Machine mach = mach1();
+        mach.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR) (BY)", AZ));
+        assertEquals("QVPQSOKOIL", mach.convert("FROMHISSHO"));
+        MachineState state = mach.snapshot();
+        assertEquals("PUBKJZPISFXDW", mach.convert("ULDERHIAWATHA"));
+        mach.insertRotors(new String[] { "B", "Beta", "I", "III", "IV" });
+        mach.setPlugboard(new Permutation("", AZ));
+        mach.restore(state);
+        assertEquals(ROTORS.get("III"), mach.getRotor(2));
+        assertEquals("PUBKJZPISFXDW", mach.convert("ULDERHIAWATHA"));
+        mach.restore(state);
+        assertEquals("PUBKJZPISFXDW", mach.convert("ULDERHIAWATHA"));
+    }
 }
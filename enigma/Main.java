@@ -1,13 +1,35 @@
 package enigma;
 
-import java.io.File;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
 
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import ucb.util.CommandArgs;
 
@@ -26,18 +48,62 @@ public final class Main {
      *  input.  ARGS[2] is optional; when present, it names an output
      *  file for processed messages.  Otherwise, output goes to the
      *  standard output. Exits normally if there are no errors in the input;
-     *  otherwise with code 1. */
+     *  otherwise with code 1.
+     *
+     *  Alternatively, ARGS may be "compile-config", CONFIG, IMAGE, which
+     *  checks configuration file CONFIG and writes it to the file IMAGE as
+     *  a catalog image, which may then be given in place of CONFIG.  Or
+     *  ARGS may be "serve", ADDRESS, CONFIG..., which runs an
+     *  EnigmaServer on ADDRESS for the configuration files CONFIG...,
+     *  each known to clients by the name it is given here.  Or ARGS may
+     *  be "batch", optionally "--jobs=N", and then manifests or input
+     *  files (see BatchRunner), which runs all the jobs they describe
+     *  on N worker threads (by default, one per processor).  Or ARGS may
+     *  be "compile-ngrams", CONFIG, N, STORE, CORPUS..., which learns
+     *  the N-gram statistics of the UTF-8 text files CORPUS... over the
+     *  alphabet of CONFIG and writes them to the file STORE, to be
+     *  mapped by NgramStore. */
     public static void main(String... args) {
         try {
+            if (args.length > 0 && args[0].equals("compile-config")) {
+                if (args.length != 3) {
+                    throw error("Usage: java enigma.Main compile-config "
+                                + "CONFIG IMAGE");
+                }
+                compileConfig(args[1], args[2]);
+                return;
+            }
+            if (args.length > 0 && args[0].equals("serve")) {
+                if (args.length < 3) {
+                    throw error("Usage: java enigma.Main serve ADDRESS "
+                                + "CONFIG...");
+                }
+                serve(args[1], Arrays.asList(args).subList(2, args.length));
+                return;
+            }
+            if (args.length > 0 && args[0].equals("compile-ngrams")) {
+                if (args.length < 5 || !args[2].matches("[1-9]")) {
+                    throw error("Usage: java enigma.Main compile-ngrams "
+                                + "CONFIG N STORE CORPUS...");
+                }
+                compileNgrams(args[1], Integer.parseInt(args[2]), args[3],
+                              Arrays.asList(args).subList(4, args.length));
+                return;
+            }
+            if (args.length > 0 && args[0].equals("batch")) {
+                batch(Arrays.asList(args).subList(1, args.length));
+                return;
+            }
             CommandArgs options =
-                    new CommandArgs("--verbose --=(.*){1,3}", args);
+                    new CommandArgs("--verbose --parallel --blocks --mmap "
+                                    + "--=(.*){1,3}", args);
             if (!options.ok()) {
                 throw error("Usage: java enigma.Main [--verbose] "
-                        + "[INPUT [OUTPUT]]");
+                        + "[--parallel] [--blocks] [--mmap] "
+                        + "CONFIG [INPUT [OUTPUT]]");
             }
 
-            _verbose = options.contains("--verbose");
-            new Main(options.get("--")).process();
+            new Main(options).process();
             return;
         } catch (EnigmaException excp) {
             System.err.printf("Error: %s%n", excp.getMessage());
@@ -45,66 +111,431 @@ public final class Main {
         System.exit(1);
     }
 
-    /** Open the necessary files for non-option arguments ARGS (see comment
-     *  on main). */
-    Main(List<String> args) {
-        _config = getInput(args.get(0));
+    /** Take the options in OPTIONS and open the necessary files for its
+     *  non-option arguments (see comment on main). */
+    Main(CommandArgs options) {
+        _verbose = options.contains("--verbose");
+        _parallel = options.contains("--parallel") && !_verbose;
+        _blocks = options.contains("--blocks") && !_verbose;
+        _mmap = options.contains("--mmap");
+
+        List<String> args = options.get("--");
+        openConfig(args.get(0));
 
         if (args.size() > 1) {
-            _input = getInput(args.get(1));
+            _input = new CharSource(getStream(args.get(1)));
         } else {
-            _input = new Scanner(System.in);
+            _input = new CharSource(System.in);
         }
 
         if (args.size() > 2) {
-            _output = getOutput(args.get(2));
+            _output = openOutput(args.get(2));
         } else {
-            _output = System.out;
+            _output = new GroupWriter(System.out);
         }
     }
 
-    /** Return a Scanner reading from the file named NAME. */
-    private Scanner getInput(String name) {
+    /** Open only the configuration file named CONFIG. */
+    private Main(String config) {
+        openConfig(config);
+    }
+
+    /** Take only the configuration, or catalog image, in CONTENTS. */
+    private Main(byte[] contents) {
+        useConfig(contents);
+    }
+
+    /** Take only the configuration text read by CONFIG. */
+    private Main(Scanner config) {
+        _config = config;
+    }
+
+    /** A Main that reads messages from INPUT and writes the results to
+     *  OUTPUT, for use with process(Catalog). */
+    Main(InputStream input, OutputStream output) {
+        _input = new CharSource(input);
+        _output = new GroupWriter(output);
+    }
+
+    /** Return the catalog described by the configuration file, or
+     *  catalog image, named CONFIG. */
+    static Catalog loadCatalog(String config) {
+        return new Main(config).readConfig();
+    }
+
+    /** Return the catalog described by CONTENTS, the contents of a
+     *  configuration file or catalog image. */
+    static Catalog readCatalog(byte[] contents) {
+        return new Main(contents).readConfig();
+    }
+
+    /** Return the catalog described by TEXT, the text of a configuration
+     *  file (never a catalog image). */
+    static Catalog parseCatalog(String text) {
+        return new Main(new Scanner(text)).readConfig();
+    }
+
+    /** Read the configuration file, or catalog image, named NAME. */
+    private void openConfig(String name) {
+        byte[] contents;
         try {
-            return new Scanner(new File(name));
+            contents = Files.readAllBytes(Paths.get(name));
+        } catch (IOException | InvalidPathException excp) {
+            throw error("could not open %s", name);
+        }
+        useConfig(contents);
+    }
+
+    /** Take the configuration, or catalog image, from CONTENTS. */
+    private void useConfig(byte[] contents) {
+        if (CatalogImage.isImage(contents)) {
+            _image = contents;
+        } else {
+            _config = new Scanner(new String(contents,
+                                             Charset.defaultCharset()));
+        }
+    }
+
+    /** Check the configuration file named CONFIG and write it as a
+     *  catalog image to the file named IMAGE. */
+    private static void compileConfig(String config, String image) {
+        Catalog catalog = loadCatalog(config);
+        try (OutputStream out = new FileOutputStream(image)) {
+            CatalogImage.write(catalog, out);
+        } catch (IOException excp) {
+            throw error("could not write %s", image);
+        }
+    }
+
+    /** Learn the N-gram statistics of the files named CORPUS, read as
+     *  UTF-8 with malformed input replaced, over the alphabet of the
+     *  configuration file named CONFIG, and write them to the file named
+     *  STORE. */
+    private static void compileNgrams(String config, int n, String store,
+                                      List<String> corpus) {
+        Alphabet alpha = loadCatalog(config).alphabet();
+        NgramTable.Counts counts = new NgramTable.Counts(alpha, n);
+        char[] buf = new char[CharSource.DEFAULT_SIZE];
+        for (String name : corpus) {
+            CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            try (Reader in = new InputStreamReader(
+                     Files.newInputStream(Paths.get(name)), decoder)) {
+                for (int k = in.read(buf); k >= 0; k = in.read(buf)) {
+                    counts.add(buf, 0, k);
+                }
+            } catch (IOException | InvalidPathException excp) {
+                throw error("could not read %s: %s", name, excp.getMessage());
+            }
+        }
+        try {
+            NgramStore.write(counts.table(), alpha, Paths.get(store));
+        } catch (IOException | InvalidPathException excp) {
+            throw error("could not write %s: %s", store, excp.getMessage());
+        }
+    }
+
+    /** Return a stream reading from the file named NAME, which is
+     *  memory-mapped if --mmap was specified. */
+    private InputStream getStream(String name) {
+        try {
+            if (_mmap) {
+                return new MappedInput(Paths.get(name));
+            }
+            return new FileInputStream(name);
         } catch (IOException excp) {
             throw error("could not open %s", name);
         }
     }
 
-    /** Return a PrintStream writing to the file named NAME. */
-    private PrintStream getOutput(String name) {
+    /** Return a GroupWriter onto the file named NAME, which writes to
+     *  the file's channel from a direct buffer if --mmap was
+     *  specified. */
+    private GroupWriter openOutput(String name) {
         try {
-            return new PrintStream(new File(name));
+            if (_mmap) {
+                return new GroupWriter(
+                    FileChannel.open(Paths.get(name),
+                                     StandardOpenOption.WRITE,
+                                     StandardOpenOption.CREATE,
+                                     StandardOpenOption.TRUNCATE_EXISTING),
+                    Charset.defaultCharset(), CHANNEL_BUFFER_SIZE);
+            }
+            return new GroupWriter(new FileOutputStream(name));
         } catch (IOException excp) {
             throw error("could not open %s", name);
         }
     }
 
+    /** Serve requests on ADDRESS for the configuration files named
+     *  CONFIGS until killed. */
+    private static void serve(String address, List<String> configs) {
+        LinkedHashMap<String, Catalog> catalogs = new LinkedHashMap<>();
+        for (String config : configs) {
+            catalogs.put(config, loadCatalog(config));
+        }
+        try (EnigmaServer server = new EnigmaServer(catalogs)) {
+            System.err.printf("Listening on %s%n", server.bind(address));
+            server.serve();
+        }
+    }
+
+    /** Run the batch jobs described by ARGS (see main). */
+    private static void batch(List<String> args) {
+        int workers = Runtime.getRuntime().availableProcessors();
+        List<String> sources = args;
+        if (!args.isEmpty() && args.get(0).matches("--jobs=\\d{1,4}")) {
+            workers = Integer.parseInt(args.get(0).substring(7));
+            sources = args.subList(1, args.size());
+        }
+        if (sources.isEmpty()) {
+            throw error("Usage: java enigma.Main batch [--jobs=N] "
+                        + "MANIFEST|INPUT...");
+        }
+        BatchRunner runner = new BatchRunner(workers);
+        Path here = Paths.get("");
+        for (String source : sources) {
+            if (source.endsWith(".in") || source.matches(".*[*?\\[{].*")) {
+                runner.addInputs(here, source);
+            } else {
+                runner.addManifest(Paths.get(source));
+            }
+        }
+        int failures = runner.run(System.out);
+        if (failures > 0) {
+            throw error("%d batch jobs failed", failures);
+        }
+    }
+
     /** Configure an Enigma machine from the contents of configuration
      *  file _config and apply it to the messages in _input, sending the
      *  results to _output. */
     private void process() {
+        process(readConfig());
+    }
+
+    /** Apply machines from CATALOG to the messages in _input, sending the
+     *  results to _output. */
+    void process(Catalog catalog) {
+        _alphabet = catalog.alphabet();
+        if (_blocks) {
+            processBlocks(catalog);
+            return;
+        }
+        Machine mach = catalog.newMachine();
+        if (!_verbose) {
+            process(mach);
+            return;
+        }
+        try (RingTracer tracer = new RingTracer(_alphabet, System.err)) {
+            mach.setTracer(tracer);
+            process(mach);
+        }
+    }
+
+    /** Apply MACH, configured from _config, to the messages in _input,
+     *  sending the results to _output.  Output is flushed at the end of
+     *  each block of messages sharing one setting. */
+    private void process(Machine mach) {
         boolean set = false;
-        Machine mach = readConfig();
-        while (_input.hasNextLine()) {
-            String lineTracker = _input.nextLine();
-            if (lineTracker.startsWith("*")) {
-                setUp(mach, lineTracker);
-                set = true;
-            } else {
-                if (!set) {
+        CompiledMachine compiled = null;
+        try {
+            for (int c = _input.read(); c >= 0; c = _input.read()) {
+                if (c == '*') {
+                    _output.flush();
+                    setUp(mach, readSettings());
+                    set = true;
+                    if (_parallel) {
+                        compiled = mach.compile();
+                    }
+                } else if (!set) {
                     throw new EnigmaException("NO SETTING");
+                } else if (compiled != null) {
+                    convertLine(compiled, c);
+                } else {
+                    convertLine(mach, c);
+                }
+            }
+        } finally {
+            _output.flush();
+        }
+    }
+
+    /** Apply machines from CATALOG to the messages in _input, sending
+     *  the results to _output, as for process(Machine), but converting
+     *  the blocks of messages that follow each settings line
+     *  concurrently, each on its own machine.  Up to BLOCK_WINDOW blocks
+     *  are in progress at once; their results are written in input
+     *  order as the oldest completes. */
+    private void processBlocks(Catalog catalog) {
+        ArrayDeque<ForkJoinTask<Block>> pending = new ArrayDeque<>();
+        try {
+            int c = _input.read();
+            if (c >= 0 && c != '*') {
+                throw new EnigmaException("NO SETTING");
+            }
+            StringBuilder text = new StringBuilder();
+            while (c >= 0) {
+                String settings = readSettings();
+                text.setLength(0);
+                for (c = _input.read(); c >= 0 && c != '*';
+                     c = _input.read()) {
+                    for (; c >= 0 && c != '\n'; c = _input.read()) {
+                        if (!isBlank(c)) {
+                            text.append((char) c);
+                        }
+                    }
+                    text.append('\n');
+                }
+                Block block = new Block(catalog, settings, text.toString());
+                pending.add(ForkJoinPool.commonPool().submit(block));
+                if (pending.size() >= BLOCK_WINDOW) {
+                    pending.remove().join().write();
+                }
+            }
+            while (!pending.isEmpty()) {
+                pending.remove().join().write();
+            }
+        } finally {
+            for (ForkJoinTask<Block> task : pending) {
+                task.cancel(false);
+            }
+            _output.flush();
+        }
+    }
+
+    /** A block of messages following one settings line, converted into
+     *  formatted output on a machine of its own. */
+    private class Block implements Callable<Block> {
+
+        /** A block of messages from the lines of TEXT, with their blanks
+         *  removed, to be converted by a machine from CATALOG set up
+         *  according to the settings line SETTINGS. */
+        Block(Catalog catalog, String settings, String text) {
+            _catalog = catalog;
+            _settings = settings;
+            _text = text;
+        }
+
+        /** Convert my messages, recording the output or the error that
+         *  prevented it.  Returns this Block. */
+        @Override
+        public Block call() {
+            ByteArrayOutputStream bytes =
+                new ByteArrayOutputStream(_text.length() * 2 + 16);
+            try {
+                Machine mach = _catalog.newMachine();
+                setUp(mach, _settings);
+                GroupWriter out = new GroupWriter(
+                    bytes, Charset.defaultCharset(),
+                    Math.min(_text.length() * 2, GroupWriter.DEFAULT_SIZE));
+                Alphabet alpha = mach.alphabet();
+                for (int i = 0; i < _text.length(); i += 1) {
+                    char c = _text.charAt(i);
+                    if (c == '\n') {
+                        out.endLine();
+                    } else {
+                        out.write(alpha.toChar(mach.convert(alpha.toInt(c))));
+                    }
+                }
+                out.flush();
+                _result = bytes.toByteArray();
+            } catch (EnigmaException excp) {
+                _error = excp;
+            }
+            return this;
+        }
+
+        /** Write my output to _output, or throw the error that prevented
+         *  it. */
+        void write() {
+            if (_error != null) {
+                throw _error;
+            }
+            _output.write(_result);
+        }
+
+        /** Source of my machine. */
+        private final Catalog _catalog;
+
+        /** My settings line. */
+        private final String _settings;
+
+        /** My messages, one per line. */
+        private final String _text;
+
+        /** My formatted output, once converted. */
+        private byte[] _result;
+
+        /** The error that stopped my conversion, if any. */
+        private EnigmaException _error;
+    }
+
+    /** Return the rest of a settings line from _input, which has just
+     *  delivered its initial '*'. */
+    private String readSettings() {
+        StringBuilder line = new StringBuilder("*");
+        for (int c = _input.read(); c >= 0 && c != '\n'; c = _input.read()) {
+            line.append((char) c);
+        }
+        return line.toString();
+    }
+
+    /** Convert the message line from _input that starts with C (which may
+     *  be the terminating newline) with MACH, writing the result to
+     *  _output in groups of five. */
+    private void convertLine(Machine mach, int c) {
+        for (; c >= 0 && c != '\n'; c = _input.read()) {
+            if (!isBlank(c)) {
+                _output.write(_alphabet.toChar(
+                                  mach.convert(_alphabet.toInt((char) c))));
+            }
+        }
+        _output.endLine();
+    }
+
+    /** Convert the message line from _input that starts with C (which may
+     *  be the terminating newline) with MACH, in chunks converted on
+     *  several cores, writing the result to _output in groups of five.
+     *  As on the serial path, a character outside the alphabet converts
+     *  as the last letter, to which Machine's plugboard wraps it. */
+    private void convertLine(CompiledMachine mach, int c) {
+        if (_chunk == null) {
+            _chunk = new char[PARALLEL_CHUNK];
+            _last = _alphabet.toChar(_alphabet.size() - 1);
+        }
+        int n = 0;
+        for (; c >= 0 && c != '\n'; c = _input.read()) {
+            if (!isBlank(c)) {
+                if (n == _chunk.length) {
+                    mach.convert(_chunk, 0, n, ForkJoinPool.commonPool());
+                    _output.write(_chunk, 0, n);
+                    n = 0;
                 }
-                String lineNoSpaces = lineTracker.replaceAll("\\s", "");
-                printMessageLine(mach.convert(lineNoSpaces));
+                _chunk[n] = _alphabet.contains((char) c) ? (char) c : _last;
+                n += 1;
             }
         }
+        mach.convert(_chunk, 0, n, ForkJoinPool.commonPool());
+        _output.write(_chunk, 0, n);
+        _output.endLine();
+    }
+
+    /** Return true iff C is a blank, other than a newline, that is
+     *  dropped from messages. */
+    static boolean isBlank(int c) {
+        return c == ' ' || c == '\t' || c == '\u000B' || c == '\f';
     }
 
-    /** Return an Enigma machine configured from the contents of configuration
-     *  file _config. */
-    private Machine readConfig() {
+    /** Return the catalog of Enigma machines described by the contents of
+     *  configuration file _config, or by catalog image _image. */
+    private Catalog readConfig() {
+        if (_image != null) {
+            Catalog catalog = CatalogImage.read(_image);
+            _alphabet = catalog.alphabet();
+            return catalog;
+        }
         try {
             _alphabet = new Alphabet(_config.next());
             int rotors = _config.nextInt();
@@ -114,7 +545,7 @@ public final class Main {
             while (_config.hasNext()) {
                 allRotors.add(readRotor());
             }
-            return new Machine(_alphabet, rotors, pawls, allRotors);
+            return new Catalog(_alphabet, rotors, pawls, allRotors);
         } catch (NoSuchElementException excp) {
             throw error("configuration file truncated");
         }
@@ -153,14 +584,20 @@ public final class Main {
 
     /** Set M according to the specification given on SETTINGS,
      *  which must have the format specified in the assignment. */
-    private void setUp(Machine M, String settings) {
+    static void setUp(Machine M, String settings) {
         String[] settingsArray = settings.split("\\s");
+        if (settingsArray.length <= M.numRotors()) {
+            throw error("too few fields in settings line");
+        }
         String[] rotorArray = new String[M.numRotors()];
         String permString = "";
         for (int i = 1; i <= M.numRotors(); i++) {
             rotorArray[i - 1] = settingsArray[i];
         }
         M.insertRotors(rotorArray);
+        if (settingsArray.length == M.numRotors() + 1) {
+            throw error("too few fields in settings line");
+        }
         M.setRotors(settingsArray[M.numRotors() + 1]);
         if (M.numRotors() + 2 == settingsArray.length) {
             Permutation plug = new Permutation("", M.alphabet());
@@ -175,42 +612,51 @@ public final class Main {
         }
     }
 
-    /** Return true iff verbose option specified. */
-    static boolean verbose() {
-        return _verbose;
-    }
-
-    /** Print MSG in groups of five (except that the last group may
-     *  have fewer letters). */
-    private void printMessageLine(String msg) {
-        String result = "";
-        String msgCopy = msg;
-        for (int i = 0; i < (msg.length() / 5); i++) {
-            result += msgCopy.substring(0, 5) + " ";
-            msgCopy = msgCopy.substring(5);
-        }
-        if (msgCopy.length() > 0) {
-            result += msgCopy;
-            _output.println(result);
-        } else {
-            _output.println(result);
-        }
-    }
-
     /** Alphabet used in this machine. */
     private Alphabet _alphabet;
 
     /** Source of input messages. */
-    private Scanner _input;
+    private CharSource _input;
 
-    /** Source of machine configuration. */
+    /** Source of machine configuration, unless it is an image. */
     private Scanner _config;
 
-    /** File for encoded/decoded messages. */
-    private PrintStream _output;
+    /** Contents of the catalog image given as configuration, if any. */
+    private byte[] _image;
+
+    /** Destination for encoded/decoded messages. */
+    private GroupWriter _output;
+
+    /** Maximum number of settings blocks in progress with --blocks. */
+    private static final int BLOCK_WINDOW = 1024;
+
+    /** Size in bytes of the direct output buffer with --mmap. */
+    private static final int CHANNEL_BUFFER_SIZE = 1 << 20;
+
+    /** Number of characters converted at once with --parallel. */
+    private static final int PARALLEL_CHUNK = 1 << 20;
+
+    /** Buffer for message characters with --parallel. */
+    private char[] _chunk;
+
+    /** Last letter of _alphabet, once _chunk is allocated. */
+    private char _last;
+
+    /** True if --verbose specified: each conversion is then traced on
+     *  the standard error. */
+    private boolean _verbose;
+
+    /** True if --parallel specified: long message lines are then
+     *  converted in chunks on several cores. */
+    private boolean _parallel;
+
+    /** True if --blocks specified: the blocks of messages following
+     *  each settings line are then converted concurrently. */
+    private boolean _blocks;
 
-    /** True if --verbose specified. */
-    private static boolean _verbose;
+    /** True if --mmap specified: input files are then memory-mapped,
+     *  and output files written from a direct buffer. */
+    private boolean _mmap;
 
     /** names of rotors. */
     private String _rotorName;
@@ -0,0 +1,69 @@
+package enigma;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the options of the Main class.
+ *  @author AldrinSembrana
+ */
+public class MainTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return the output of running Main with options OPTIONS on
+     *  INPUT, with configuration NAVAL_CONFIG, using files in DIR. */
+    private static String run(Path dir, String options, String input)
+        throws IOException {
+        Path config = dir.resolve("config.conf");
+        Path in = dir.resolve("input.in");
+        Path out = dir.resolve("output.out");
+        Files.writeString(config, NAVAL_CONFIG);
+        Files.writeString(in, input);
+        if (options.isEmpty()) {
+            Main.main(config.toString(), in.toString(), out.toString());
+        } else {
+            Main.main(options, config.toString(), in.toString(),
+                      out.toString());
+        }
+        return Files.readString(out);
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testParallelOutsideAlphabet() throws IOException {
+        Random rand = new Random(16);
+        StringBuilder input =
+            new StringBuilder("* B Beta III IV I AXLE (HQ) (EX) (ZP)\n");
+        for (int i = 0; i < 100000; i += 1) {
+            input.append("ABCDEFGHIJKLMNOPQRSTUVWXYZ?w1"
+                         .charAt(rand.nextInt(29)));
+        }
+        input.append("\nHELLO wor1d\n");
+        Path dir = Files.createTempDirectory("enigma");
+        try {
+            String serial = run(dir, "", input.toString());
+            assertTrue(serial.length() > 100000);
+            assertEquals(serial, run(dir, "--parallel", input.toString()));
+        } finally {
+            for (String name : new String[] {
+                    "config.conf", "input.in", "output.out" }) {
+                Files.deleteIfExists(dir.resolve(name));
+            }
+            Files.delete(dir);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** An input stream over a file that is memory-mapped one window at a
+ *  time, so that files larger than a single mapping (2GB) can be read
+ *  without copying them through the operating system's read calls.
+ *  @author AldrinSembrana
+ */
+class MappedInput extends InputStream {
+
+    /** Default number of bytes mapped at once. */
+    static final long DEFAULT_WINDOW = 1L << 30;
+
+    /** A stream reading the file FILE, mapping WINDOW > 0 bytes at a
+     *  time. */
+    MappedInput(Path file, long window) throws IOException {
+        _channel = FileChannel.open(file, StandardOpenOption.READ);
+        _size = _channel.size();
+        _window = Math.min(window, Integer.MAX_VALUE);
+    }
+
+    /** A stream reading the file FILE, mapping the default window. */
+    MappedInput(Path file) throws IOException {
+        this(file, DEFAULT_WINDOW);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ready()) {
+            return -1;
+        }
+        return _mapped.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        } else if (!ready()) {
+            return -1;
+        }
+        int n = Math.min(len, _mapped.remaining());
+        _mapped.get(buf, off, n);
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE,
+                              _size - _mapStart
+                              - (_mapped == null ? 0 : _mapped.position()));
+    }
+
+    /** Return the mapped window holding the unread bytes of the file,
+     *  mapping a new one that starts at the first unread byte, or null
+     *  if the current window already reaches the end of the file.  The
+     *  window's position is the stream's: a caller that reads from it
+     *  directly advances the stream, and bytes it leaves unread begin
+     *  the next window. */
+    ByteBuffer window() throws IOException {
+        long start = _mapStart;
+        if (_mapped != null) {
+            if (_mapStart + _mapped.capacity() >= _size) {
+                return null;
+            }
+            start += _mapped.position();
+        } else if (_size == 0) {
+            return null;
+        }
+        long len = Math.min(_window, _size - start);
+        _mapped = _channel.map(FileChannel.MapMode.READ_ONLY, start, len);
+        _mapStart = start;
+        return _mapped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        _mapped = null;
+        _channel.close();
+    }
+
+    /** Make sure the current window has unread bytes, mapping the next
+     *  window if need be.  Return false iff the file is used up. */
+    private boolean ready() throws IOException {
+        return _mapped != null && _mapped.hasRemaining() || window() != null;
+    }
+
+    /** The file I read. */
+    private final FileChannel _channel;
+
+    /** Size of the file in bytes. */
+    private final long _size;
+
+    /** Maximum number of bytes mapped at once. */
+    private final long _window;
+
+    /** The currently mapped window, or null before the first. */
+    private MappedByteBuffer _mapped;
+
+    /** Offset in the file of the start of _mapped. */
+    private long _mapStart;
+}
@@ -15,6 +15,15 @@ class MovingRotor extends Rotor {
     MovingRotor(String name, Permutation perm, String notches) {
         super(name, perm);
         _notches = notches;
+        _notchSet = new boolean[perm.size()];
+        for (int i = 0; i < notches.length(); i += 1) {
+            int k = perm.alphabet().toInt(notches.charAt(i));
+            if (k < 0) {
+                throw error("notch '%c' of rotor %s is not in the alphabet",
+                            notches.charAt(i), name);
+            }
+            _notchSet[k] = true;
+        }
     }
 
     @Override
@@ -24,10 +33,12 @@ class MovingRotor extends Rotor {
 
     @Override
     boolean atNotch() {
-        if (_notches.contains("" + alphabet().toChar(setting()))) {
-            return true;
-        }
-        return false;
+        return _notchSet[setting()];
+    }
+
+    @Override
+    boolean isNotch(int posn) {
+        return _notchSet[posn];
     }
 
     @Override
@@ -43,4 +54,7 @@ class MovingRotor extends Rotor {
     /** string of notches. */
     private String _notches;
 
+    /** _notchSet[K] is true iff setting K is one of my notches. */
+    private final boolean[] _notchSet;
+
 }
@@ -0,0 +1,112 @@
+package enigma;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static enigma.EnigmaException.*;
+
+/** Writes NgramTables to files and maps them back into memory.  A
+ *  mapped table lives in the page cache rather than on the heap, so any
+ *  number of processes scoring with the same file share one copy of it,
+ *  and mapping costs nothing until entries are used.  A file holds, as
+ *  big-endian values:
+ *      the int MAGIC and the short VERSION;
+ *      N, as a short;
+ *      the alphabet, as a character count and the characters;
+ *      zero bytes to the next multiple of four bytes;
+ *      the SIZE**N log-probabilities, as floats.
+ *  Unlike a catalog image, a store has no checksum, which would mean
+ *  reading every page of the table each time it is mapped; its length
+ *  is checked instead.
+ *  @author AldrinSembrana
+ */
+class NgramStore {
+
+    /** First four bytes of every store: "ENGR". */
+    static final int MAGIC = 0x454e4752;
+
+    /** Version of the format written by write. */
+    static final short VERSION = 1;
+
+    /** Write TABLE, whose alphabet is ALPHA, to FILE. */
+    static void write(NgramTable table, Alphabet alpha, Path file)
+        throws IOException {
+        if (table.size() != alpha.size()) {
+            throw error("n-gram table does not match its alphabet");
+        }
+        try (DataOutputStream data = new DataOutputStream(
+                 new BufferedOutputStream(Files.newOutputStream(file)))) {
+            String chars = alpha.chars();
+            data.writeInt(MAGIC);
+            data.writeShort(VERSION);
+            data.writeShort(table.n());
+            data.writeInt(chars.length());
+            data.writeChars(chars);
+            for (int i = header(chars.length()) - data.size(); i > 0;
+                 i -= 1) {
+                data.writeByte(0);
+            }
+            int entries = NgramTable.entries(table.size(), table.n());
+            for (int i = 0; i < entries; i += 1) {
+                data.writeFloat(table.logProb(i));
+            }
+        }
+    }
+
+    /** Return the table in FILE, mapped read-only into memory.  Its
+     *  alphabet must be ALPHA.  Throws an EnigmaException if FILE is not
+     *  a store, is damaged or is of another version. */
+    static NgramTable map(Path file, Alphabet alpha) throws IOException {
+        MappedByteBuffer data;
+        try (FileChannel channel = FileChannel.open(
+                 file, StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                               channel.size());
+        }
+        if (data.capacity() < FIXED_HEADER || data.getInt(0) != MAGIC) {
+            throw error("%s is not an n-gram store", file);
+        }
+        short version = data.getShort(Integer.BYTES);
+        if (version != VERSION) {
+            throw error("unsupported n-gram store version %d", version);
+        }
+        int n = data.getShort(Integer.BYTES + Short.BYTES);
+        int len = data.getInt(Integer.BYTES + 2 * Short.BYTES);
+        if (n < 1 || len < 0
+            || len > (data.capacity() - FIXED_HEADER) / Character.BYTES) {
+            throw error("n-gram store %s is corrupt", file);
+        }
+        char[] chars = new char[len];
+        for (int i = 0; i < len; i += 1) {
+            chars[i] = data.getChar(FIXED_HEADER + i * Character.BYTES);
+        }
+        if (!alpha.chars().equals(new String(chars))) {
+            throw error("n-gram store %s is for another alphabet", file);
+        }
+        int start = header(len);
+        if ((long) start + (long) Float.BYTES
+            * NgramTable.entries(alpha.size(), n) != data.capacity()) {
+            throw error("n-gram store %s is corrupt", file);
+        }
+        ByteBuffer floats = data.position(start).slice();
+        return new NgramTable(alpha.size(), n, floats.asFloatBuffer());
+    }
+
+    /** Return the size, in bytes, of the header of a store whose
+     *  alphabet has LEN characters, including padding. */
+    private static int header(int len) {
+        int size = FIXED_HEADER + Character.BYTES * len;
+        return (size + Float.BYTES - 1) / Float.BYTES * Float.BYTES;
+    }
+
+    /** Size of the magic number, version, N and alphabet length. */
+    private static final int FIXED_HEADER =
+        Integer.BYTES + 2 * Short.BYTES + Integer.BYTES;
+}
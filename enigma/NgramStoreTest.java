@@ -0,0 +1,111 @@
+package enigma;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the NgramStore class.
+ *  @author AldrinSembrana
+ */
+public class NgramStoreTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testWriteAndMap() throws IOException {
+        NgramTable table = NgramTable.train(UPPER, 4, HIAWATHA.toLowerCase());
+        Path file = Files.createTempFile("enigma", ".ngrams");
+        try {
+            NgramStore.write(table, UPPER, file);
+            assertEquals(12 + 52 + 4 * 26 * 26 * 26 * 26, Files.size(file));
+            NgramTable mapped = NgramStore.map(file, UPPER);
+            assertEquals(4, mapped.n());
+            assertEquals(26, mapped.size());
+            for (int i = 0; i < 26 * 26 * 26 * 26; i += 1) {
+                if (table.logProb(i) != mapped.logProb(i)) {
+                    fail("entry " + i + " differs");
+                }
+            }
+            int[] text = UPPER.toInts(HIAWATHA.replace(" ", ""));
+            assertEquals(table.score(text), mapped.score(text), 0.0);
+            assertTrue(mapped.score(UPPER.toInts("FROMHISSHOULDER"))
+                       > mapped.score(UPPER.toInts("QXZJQXZJQXZJQXZ")));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testCountsInPieces() {
+        NgramTable whole = NgramTable.train(UPPER, 3, HIAWATHA);
+        NgramTable.Counts counts = new NgramTable.Counts(UPPER, 3);
+        char[] chars = HIAWATHA.toCharArray();
+        for (int i = 0; i < chars.length; i += 7) {
+            counts.add(chars, i, Math.min(7, chars.length - i));
+        }
+        NgramTable pieces = counts.table();
+        for (int i = 0; i < 26 * 26 * 26; i += 1) {
+            assertEquals(whole.logProb(i), pieces.logProb(i), 0.0);
+        }
+    }
+
+    @Test
+    public void testOddAlphabet() throws IOException {
+        Alphabet alpha = new Alphabet("ABC");
+        NgramTable table = NgramTable.train(alpha, 2, "ABCABBA");
+        Path file = Files.createTempFile("enigma", ".ngrams");
+        try {
+            NgramStore.write(table, alpha, file);
+            NgramTable mapped = NgramStore.map(file, alpha);
+            assertEquals(table.logProb(1), mapped.logProb(1), 0.0);
+            assertEquals(table.logProb(8), mapped.logProb(8), 0.0);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testErrors() throws IOException {
+        Alphabet alpha = new Alphabet("ABC");
+        Path file = Files.createTempFile("enigma", ".ngrams");
+        try {
+            NgramStore.write(NgramTable.train(alpha, 2, "ABCABBA"), alpha,
+                             file);
+            try {
+                NgramStore.map(file, new Alphabet("ABD"));
+                fail("wrong alphabet accepted");
+            } catch (EnigmaException excp) {
+                assertTrue(excp.getMessage().endsWith("another alphabet"));
+            }
+            byte[] bytes = Files.readAllBytes(file);
+            Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+            try {
+                NgramStore.map(file, alpha);
+                fail("truncated store accepted");
+            } catch (EnigmaException excp) {
+                assertTrue(excp.getMessage().endsWith("corrupt"));
+            }
+            Files.write(file, "HELLO, WORLD".getBytes("US-ASCII"));
+            try {
+                NgramStore.map(file, alpha);
+                fail("text accepted");
+            } catch (EnigmaException excp) {
+                assertTrue(excp.getMessage().endsWith("not an n-gram store"));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
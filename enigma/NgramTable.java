@@ -0,0 +1,179 @@
+package enigma;
+
+import java.nio.FloatBuffer;
+
+import static enigma.EnigmaException.*;
+
+/** Log-probabilities of the N-letter sequences (n-grams) of an
+ *  alphabet, as learned from a training corpus, for scoring candidate
+ *  decryptions.  The n-gram C1 C2 ... CN, as alphabet indices, is
+ *  entry ((C1 * size + C2) * size + ...) + CN of one FloatBuffer, so
+ *  scoring a text is a rolling index and a lookup per letter.  The
+ *  buffer wraps an array for tables trained in memory, or maps a file
+ *  written by NgramStore, off the heap, so that processes share it.
+ *  N-grams absent from the corpus get a floor value a little below
+ *  that of one occurrence.  An NgramTable is immutable.
+ *  @author AldrinSembrana
+ */
+class NgramTable implements PlugboardSolver.Scorer {
+
+    /** A table of the N-grams of an alphabet of SIZE letters whose
+     *  log-probabilities are LOGPROBS, which has SIZE**N entries from its
+     *  position to its limit.  LOGPROBS is not copied and must not be
+     *  modified. */
+    NgramTable(int size, int n, FloatBuffer logProbs) {
+        if (n < 1 || entries(size, n) != logProbs.remaining()) {
+            throw error("n-gram table has the wrong size");
+        }
+        _size = size;
+        _n = n;
+        _modulus = logProbs.remaining() / size;
+        _logProbs = logProbs.slice();
+    }
+
+    /** A table of the N-grams of an alphabet of SIZE letters whose
+     *  log-probabilities are LOGPROBS, which has SIZE**N entries and is
+     *  not copied. */
+    NgramTable(int size, int n, float[] logProbs) {
+        this(size, n, FloatBuffer.wrap(logProbs));
+    }
+
+    /** Return the table of N-grams of ALPHA learned from CORPUS, as
+     *  for Counts. */
+    static NgramTable train(Alphabet alpha, int n, CharSequence corpus) {
+        Counts counts = new Counts(alpha, n);
+        for (int i = 0; i < corpus.length(); i += 1) {
+            counts.add(corpus.charAt(i));
+        }
+        return counts.table();
+    }
+
+    /** Counts of the n-grams of a corpus fed to it a piece at a time.
+     *  A character of the corpus not in the alphabet counts as its
+     *  upper-case form if that is in the alphabet, and is otherwise
+     *  skipped, so that n-grams run across it. */
+    static class Counts {
+
+        /** Counts of the N-grams of ALPHA, initially none. */
+        Counts(Alphabet alpha, int n) {
+            _alpha = alpha;
+            _n = n;
+            _counts = new long[entries(alpha.size(), n)];
+        }
+
+        /** Add the next character of the corpus, CH. */
+        void add(char ch) {
+            int c = _alpha.toInt(ch);
+            if (c < 0) {
+                c = _alpha.toInt(Character.toUpperCase(ch));
+            }
+            if (c < 0) {
+                return;
+            }
+            int size = _alpha.size();
+            _index = (_index % (_counts.length / size)) * size + c;
+            _seen += 1;
+            if (_seen >= _n) {
+                _counts[_index] += 1;
+                _total += 1;
+            }
+        }
+
+        /** Add the next LEN characters of the corpus, BUF[OFF ..]. */
+        void add(char[] buf, int off, int len) {
+            for (int i = off; i < off + len; i += 1) {
+                add(buf[i]);
+            }
+        }
+
+        /** Return the table of n-grams counted so far. */
+        NgramTable table() {
+            if (_total == 0) {
+                throw error("corpus has no %d-letter sequences", _n);
+            }
+            float[] logProbs = new float[_counts.length];
+            float floor = (float) Math.log10(FLOOR / _total);
+            for (int i = 0; i < logProbs.length; i += 1) {
+                logProbs[i] = _counts[i] == 0 ? floor
+                    : (float) Math.log10((double) _counts[i] / _total);
+            }
+            return new NgramTable(_alpha.size(), _n, logProbs);
+        }
+
+        /** Alphabet of the n-grams. */
+        private final Alphabet _alpha;
+
+        /** Length of the n-grams. */
+        private final int _n;
+
+        /** Number of occurrences of each n-gram, by index. */
+        private final long[] _counts;
+
+        /** Total number of n-grams counted. */
+        private long _total;
+
+        /** Index of the last n (or fewer) letters seen. */
+        private int _index;
+
+        /** Number of letters seen. */
+        private long _seen;
+    }
+
+    /** Return SIZE**N, the number of N-grams of SIZE letters, if that
+     *  fits in an array. */
+    static int entries(int size, int n) {
+        long entries = 1;
+        for (int i = 0; i < n; i += 1) {
+            entries *= size;
+            if (entries > Integer.MAX_VALUE - 8) {
+                throw error("too many %d-grams of %d letters", n, size);
+            }
+        }
+        return (int) entries;
+    }
+
+    /** Return the size of my alphabet. */
+    int size() {
+        return _size;
+    }
+
+    /** Return N, the length of my n-grams. */
+    int n() {
+        return _n;
+    }
+
+    /** Return the log-probability of the n-gram numbered INDEX. */
+    float logProb(int index) {
+        return _logProbs.get(index);
+    }
+
+    /** Return the sum of the log-probabilities of the n-grams of TEXT,
+     *  a sequence of alphabet indices. */
+    @Override
+    public double score(int[] text) {
+        double sum = 0;
+        int index = 0;
+        for (int i = 0; i < text.length; i += 1) {
+            index = (index % _modulus) * _size + text[i];
+            if (i >= _n - 1) {
+                sum += _logProbs.get(index);
+            }
+        }
+        return sum;
+    }
+
+    /** Count given to n-grams absent from the corpus. */
+    private static final double FLOOR = 0.01;
+
+    /** Size of the alphabet. */
+    private final int _size;
+
+    /** Length of n-grams. */
+    private final int _n;
+
+    /** Number of (n-1)-grams. */
+    private final int _modulus;
+
+    /** Log-probabilities, indexed by n-gram number. */
+    private final FloatBuffer _logProbs;
+}
@@ -0,0 +1,189 @@
+package enigma;
+
+import static enigma.EnigmaException.*;
+
+/** The stepping mechanism of an enigma machine, separated from its
+ *  wiring.  An Odometer knows which slots rotate and where their notches
+ *  are, and computes the settings a machine reaches after any number of
+ *  keypresses without stepping through them one at a time.
+ *  @author AldrinSembrana
+ */
+class Odometer {
+
+    /** An odometer for a machine whose slots hold SLOTS, in order
+     *  (SLOTS[0] is the reflector). */
+    Odometer(Rotor[] slots) {
+        _numSlots = slots.length;
+        _size = slots.length == 0 ? 0 : slots[0].size();
+        _rotates = new boolean[_numSlots];
+        _notch = new boolean[_numSlots][];
+        _notchPrefix = new int[_numSlots][];
+        _openRank = new int[_numSlots][];
+        _open = new int[_numSlots][];
+        int first = _numSlots;
+        for (int k = _numSlots - 1; k >= 0 && slots[k].rotates(); k -= 1) {
+            first = k;
+        }
+        _firstMoving = first;
+        boolean regular = _numSlots > 0;
+        for (int k = 0; k < _numSlots; k += 1) {
+            _rotates[k] = slots[k].rotates();
+            regular &= _rotates[k] == (k >= first);
+            tabulate(k, slots[k]);
+            if (k > first) {
+                for (int p = 0; p < _size; p += 1) {
+                    regular &= !(_notch[k][p] && _notch[k][(p + 1) % _size]);
+                }
+            }
+        }
+        _regular = regular;
+    }
+
+    /** Fill in the notch tables for slot K, which holds ROTOR. */
+    private void tabulate(int k, Rotor rotor) {
+        boolean[] notch = _notch[k] = new boolean[_size];
+        int[] prefix = _notchPrefix[k] = new int[_size + 1];
+        int[] rank = _openRank[k] = new int[_size + 1];
+        int open = 0;
+        for (int p = 0; p < _size; p += 1) {
+            notch[p] = rotor.isNotch(p);
+            prefix[p + 1] = prefix[p] + (notch[p] ? 1 : 0);
+            rank[p + 1] = rank[p] + (notch[p] ? 0 : 1);
+            open += notch[p] ? 0 : 1;
+        }
+        _open[k] = new int[open];
+        for (int p = 0, j = 0; p < _size; p += 1) {
+            if (!notch[p]) {
+                _open[k][j] = p;
+                j += 1;
+            }
+        }
+    }
+
+    /** Advance POSITIONS, which holds the setting of each slot, by one
+     *  keypress: every rotating rotor moves if it is the fast rotor, if
+     *  the rotor to its right is at a notch, or if it is at a notch
+     *  itself and the rotor to its left rotates. */
+    void advance(int[] positions) {
+        int last = _numSlots - 1;
+        for (int i = 0; i <= last; i += 1) {
+            if (_rotates[i]
+                && (i == last
+                    || _notch[i + 1][positions[i + 1]]
+                    || (i > 0 && _rotates[i - 1]
+                        && _notch[i][positions[i]]))) {
+                positions[i] = positions[i] + 1 == _size
+                    ? 0 : positions[i] + 1;
+            }
+        }
+    }
+
+    /** Advance POSITIONS by N >= 0 keypresses, giving the same result as
+     *  N calls to advance(POSITIONS).  Takes time independent of N
+     *  unless a double-stepping rotor has notches at adjacent settings,
+     *  in which case this steps N times. */
+    void advance(int[] positions, long n) {
+        if (n < 0) {
+            throw error("cannot step a machine backwards");
+        }
+        if (n == 0) {
+            return;
+        }
+        if (!_regular) {
+            for (long t = 0; t < n; t += 1) {
+                advance(positions);
+            }
+            return;
+        }
+        advance(positions);
+        n -= 1;
+        long[] moves = new long[_numSlots];
+        for (int i = _firstMoving; i < _numSlots; i += 1) {
+            moves[i] = moves(positions, i, n);
+        }
+        for (int i = _firstMoving; i < _numSlots; i += 1) {
+            positions[i] = (int) ((positions[i] + moves[i] % _size) % _size);
+        }
+    }
+
+    /** Return the number of times the rotor in slot I advances during the
+     *  next T keypresses, starting from POSITIONS.  This relies on the
+     *  fact that, once the machine has stepped at least once, a
+     *  double-stepping rotor that lands on a notch always leaves it on
+     *  the very next keypress, and never on a keypress that would have
+     *  moved it anyway. */
+    private long moves(int[] positions, int i, long t) {
+        if (i == _numSlots - 1) {
+            return t;
+        }
+        long triggers = notchesPassed(i + 1, positions[i + 1],
+                                      moves(positions, i + 1, t));
+        if (i == _firstMoving) {
+            return triggers;
+        }
+        long base = triggers == 0 ? 0 : nthOpen(i, positions[i], triggers) + 1;
+        int landed = (int) ((positions[i] + base % _size) % _size);
+        if (!_notch[i][landed]) {
+            return base;
+        } else if (triggers == 0) {
+            return t >= 1 ? base + 1 : base;
+        } else {
+            long right = moves(positions, i + 1, t - 1);
+            int rightPosn = (int) ((positions[i + 1] + right % _size) % _size);
+            return _notch[i + 1][rightPosn] ? base : base + 1;
+        }
+    }
+
+    /** Return the number of notch settings of slot K among the M
+     *  consecutive settings starting at P. */
+    private long notchesPassed(int k, int p, long m) {
+        int[] prefix = _notchPrefix[k];
+        int r = (int) (m % _size);
+        long count = (m / _size) * prefix[_size];
+        if (p + r <= _size) {
+            return count + prefix[p + r] - prefix[p];
+        }
+        return count + prefix[_size] - prefix[p] + prefix[p + r - _size];
+    }
+
+    /** Return the offset from P of the M-th (M >= 1) setting at or after
+     *  P, counting around the rotor, that is not a notch of slot K. */
+    private long nthOpen(int k, int p, long m) {
+        int[] open = _open[k];
+        long g = _openRank[k][p] + m - 1;
+        return open[(int) (g % open.length)]
+            + (g / open.length) * _size - p;
+    }
+
+    /** Number of slots. */
+    private final int _numSlots;
+
+    /** Number of settings of each rotor. */
+    private final int _size;
+
+    /** _rotates[K] is true iff slot K has a pawl. */
+    private final boolean[] _rotates;
+
+    /** Index of the leftmost rotating slot. */
+    private final int _firstMoving;
+
+    /** True iff the rotating slots form a suffix of the slots and no
+     *  double-stepping rotor has notches at adjacent settings, so that
+     *  advance(int[], long) can count moves arithmetically. */
+    private final boolean _regular;
+
+    /** _notch[K][P] is true iff slot K has a notch at setting P. */
+    private final boolean[][] _notch;
+
+    /** _notchPrefix[K][P] is the number of notches of slot K at
+     *  settings less than P. */
+    private final int[][] _notchPrefix;
+
+    /** _openRank[K][P] is the number of settings less than P that are
+     *  not notches of slot K. */
+    private final int[][] _openRank;
+
+    /** _open[K] lists, in increasing order, the settings that are not
+     *  notches of slot K. */
+    private final int[][] _open;
+}
@@ -0,0 +1,106 @@
+package enigma;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the Odometer class and
+ *  Machine.seek.
+ *  @author AldrinSembrana
+ */
+public class OdometerTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return random slots over an alphabet of N letters: a reflector,
+     *  FIXED fixed rotors and MOVING moving rotors with random notches,
+     *  chosen using RAND. */
+    private Rotor[] randomSlots(int n, int fixed, int moving, Random rand) {
+        Alphabet alpha = new Alphabet(UPPER_STRING.substring(0, n));
+        Permutation id = new Permutation("", alpha);
+        Rotor[] slots = new Rotor[1 + fixed + moving];
+        slots[0] = new Reflector("R", id);
+        for (int k = 1; k < slots.length; k += 1) {
+            if (k <= fixed) {
+                slots[k] = new FixedRotor("F" + k, id);
+            } else {
+                String notches = "";
+                for (int p = 0; p < n; p += 1) {
+                    if (rand.nextInt(4) == 0) {
+                        notches += alpha.toChar(p);
+                    }
+                }
+                slots[k] = new MovingRotor("M" + k, id, notches);
+            }
+        }
+        return slots;
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testSeekMatchesStepping() {
+        Random rand = new Random(61);
+        for (int trial = 0; trial < 400; trial += 1) {
+            int n = 2 + rand.nextInt(7);
+            Rotor[] slots = randomSlots(n, rand.nextInt(2),
+                                        1 + rand.nextInt(4), rand);
+            Odometer odometer = new Odometer(slots);
+            int[] start = new int[slots.length];
+            for (int k = 1; k < start.length; k += 1) {
+                start[k] = slots[k].rotates() ? rand.nextInt(n) : 0;
+            }
+            int[] stepped = start.clone();
+            for (int t = 0; t <= 300; t += 1) {
+                int[] sought = start.clone();
+                odometer.advance(sought, t);
+                assertArrayEquals(msg("seek", "trial %d, %d steps from %s",
+                                      trial, t, Arrays.toString(start)),
+                                  stepped, sought);
+                odometer.advance(stepped);
+            }
+        }
+    }
+
+    @Test
+    public void testMachineSeek() {
+        String[] rotors = { "B", "Beta", "VI", "II", "VIII" };
+        Machine mach = navalMachine(rotors, "AYDZ", "");
+        String msg = randomText(UPPER_STRING, 100000,
+                                                    new Random(3));
+        mach.convert(msg);
+        String after = "";
+        for (int k = 1; k < 5; k += 1) {
+            after += UPPER.toChar(mach.setting(k));
+        }
+        assertEquals(after, mach.stateAfter("AYDZ", msg.length()));
+        mach.setRotors("AYDZ");
+        mach.seek(msg.length());
+        for (int k = 1; k < 5; k += 1) {
+            assertEquals(UPPER.toInt(after.charAt(k - 1)),
+                         mach.setting(k));
+        }
+        assertEquals("AYDZ", mach.stateAfter("AYDZ", 0));
+    }
+
+    @Test
+    public void testCompiledSeek() {
+        String[] rotors = { "B", "Beta", "III", "IV", "I" };
+        String msg = "FROMHISSHOULDERHIAWATHA";
+        Machine mach = navalMachine(rotors, "AXLE", "");
+        String whole = mach.compile().convert(msg);
+        CompiledMachine comp = mach.compile();
+        comp.seek(10);
+        assertEquals(whole.substring(10), comp.convert(msg.substring(10)));
+    }
+}
@@ -0,0 +1,53 @@
+package enigma;
+
+import java.util.concurrent.RecursiveAction;
+
+/** A fork/join task that converts a stretch of a message in place.
+ *  Each chunk gets its own copy of the starting machine, moved to the
+ *  chunk's first character with CompiledMachine.seek, so chunks are
+ *  independent and may be converted in any order.
+ *  @author AldrinSembrana
+ */
+class ParallelConverter extends RecursiveAction {
+
+    /** A task that converts characters LO .. HI-1 of BUF, where the
+     *  message being converted starts at index START, and MACH is in the
+     *  state it has before converting character START.  MACH is not
+     *  modified. */
+    ParallelConverter(CompiledMachine mach, char[] buf, int start,
+                      int lo, int hi) {
+        _mach = mach;
+        _buf = buf;
+        _start = start;
+        _lo = lo;
+        _hi = hi;
+    }
+
+    @Override
+    protected void compute() {
+        if (_hi - _lo < 2 * MIN_CHUNK) {
+            CompiledMachine mach = _mach.copy();
+            mach.seek(_lo - _start);
+            mach.convert(_buf, _lo, _hi - _lo, _buf);
+        } else {
+            int mid = _lo + (_hi - _lo) / 2;
+            invokeAll(new ParallelConverter(_mach, _buf, _start, _lo, mid),
+                      new ParallelConverter(_mach, _buf, _start, mid, _hi));
+        }
+    }
+
+    /** The smallest number of characters converted by one task. */
+    static final int MIN_CHUNK = 1 << 15;
+
+    /** The machine in its state before converting _buf[_start]. */
+    private final CompiledMachine _mach;
+
+    /** The characters being converted. */
+    private final char[] _buf;
+
+    /** Index in _buf of the first character of the message. */
+    private final int _start;
+
+    /** Bounds of the characters this task converts. */
+    private final int _lo, _hi;
+}
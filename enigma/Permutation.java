@@ -16,42 +16,88 @@ class Permutation {
     Permutation(String cycles, Alphabet alphabet) {
         _alphabet = alphabet;
         _cycles = cycles;
-        while (_cycles.contains(")(")) {
-            int err = _cycles.indexOf(")(");
-            _cycles = _cycles.substring(0, err + 1) + " "
-                    + _cycles.substring(err + 1);
+        int n = alphabet.size();
+        _forward = new int[n];
+        _inverse = new int[n];
+        for (int i = 0; i < n; i += 1) {
+            _forward[i] = _inverse[i] = i;
         }
-        _perms = new char[_alphabet.size()];
-        _cycleGroups = _cycles.split("\\s");
-        for (int i = 0; i < _cycleGroups.length; i++) {
-            int x = _cycleGroups[i].length();
-            if (x > 0 && _cycleGroups[i].charAt(x - 1) != ')') {
-                System.out.println(_cycleGroups[i]);
-                throw error("no ending parenthesis");
+        boolean[] seen = new boolean[n];
+        int[] cycle = new int[n];
+        int len = -1;
+        for (int i = 0; i < cycles.length(); i += 1) {
+            char ch = cycles.charAt(i);
+            if (ch == '(') {
+                if (len >= 0) {
+                    throw error("no ending parenthesis");
+                }
+                len = 0;
+            } else if (ch == ')') {
+                if (len < 0) {
+                    throw error("no opening parenthesis");
+                }
+                addCycle(cycle, len);
+                len = -1;
+            } else if (!Character.isWhitespace(ch)) {
+                int k = alphabet.toInt(ch);
+                if (len < 0) {
+                    throw error("'%c' is not inside a cycle", ch);
+                } else if (k < 0) {
+                    throw error("'%c' is not in the alphabet", ch);
+                } else if (seen[k]) {
+                    throw error("'%c' appears more than once in cycles", ch);
+                }
+                seen[k] = true;
+                cycle[len] = k;
+                len += 1;
             }
         }
-        int k;
-        for (int i = 0; i < _perms.length; i++) {
-            for (int j = 0; j < _cycleGroups.length; j++) {
-                if (_cycleGroups[j].contains("" + _alphabet.toChar(i))) {
-                    k = _cycleGroups[j].indexOf("" + _alphabet.toChar(i));
-                    if (_cycleGroups[j].charAt(k + 1) == ')') {
-                        k = 0;
-                    }
-                    _perms[i] = _cycleGroups[j].charAt(k + 1);
-                    break;
-                }
+        if (len >= 0) {
+            throw error("no ending parenthesis");
+        }
+    }
+
+    /** A Permutation of the indices of ALPHABET that takes each index K
+     *  to FORWARD[K], where INVERSE is the inverse of FORWARD.  Both
+     *  arrays are checked, then shared, so they must not be modified
+     *  afterwards.  Used to rebuild permutations without parsing. */
+    Permutation(Alphabet alphabet, int[] forward, int[] inverse) {
+        int n = alphabet.size();
+        if (forward.length != n || inverse.length != n) {
+            throw error("permutation tables do not match the alphabet");
+        }
+        for (int k = 0; k < n; k += 1) {
+            if (inverse[k] < 0 || inverse[k] >= n
+                || forward[inverse[k]] != k) {
+                throw error("permutation tables are not inverses");
             }
-            if (_perms[i] == '\0') {
-                _perms[i] = _alphabet.toChar(i);
+        }
+        _alphabet = alphabet;
+        _forward = forward;
+        _inverse = inverse;
+        StringBuilder cycles = new StringBuilder();
+        boolean[] seen = new boolean[n];
+        for (int k = 0; k < n; k += 1) {
+            if (!seen[k] && forward[k] != k) {
+                cycles.append(cycles.length() == 0 ? "(" : " (");
+                for (int j = k; !seen[j]; j = forward[j]) {
+                    seen[j] = true;
+                    cycles.append(alphabet.toChar(j));
+                }
+                cycles.append(')');
             }
         }
+        _cycles = cycles.toString();
     }
 
-    /** Add the cycle c0->c1->...->cm->c0 to the permutation, where CYCLE is
-     *  c0c1...cm. */
-    private void addCycle(String cycle) {
-        _cycles = _cycles.concat(" " + cycle);
+    /** Add the cycle c0->c1->...->cm->c0 to the permutation, where CYCLE
+     *  holds the indices c0c1...cm in its first LEN entries. */
+    private void addCycle(int[] cycle, int len) {
+        for (int i = 0; i < len; i += 1) {
+            int from = cycle[i], to = cycle[(i + 1) % len];
+            _forward[from] = to;
+            _inverse[to] = from;
+        }
     }
 
     /** Return the value of P modulo the size of this permutation. */
@@ -65,39 +111,36 @@ class Permutation {
 
     /** Returns the size of the alphabet I permute. */
     int size() {
-        return _alphabet.size();
+        return _forward.length;
     }
 
     /** Return the result of applying this permutation to P modulo the
      *  alphabet size. */
     int permute(int p) {
-        char ch = _alphabet.toChar(wrap(p));
-        return _alphabet.toInt(permute(ch));
+        if (p < 0 || p >= _forward.length) {
+            p = wrap(p);
+        }
+        return _forward[p];
     }
 
     /** Return the result of applying the inverse of this permutation
      *  to  C modulo the alphabet size. */
     int invert(int c) {
-        char ch = _alphabet.toChar(wrap(c));
-        return _alphabet.toInt(invert(ch));
+        if (c < 0 || c >= _inverse.length) {
+            c = wrap(c);
+        }
+        return _inverse[c];
     }
 
     /** Return the result of applying this permutation to the index of P
      *  in ALPHABET, and converting the result to a character of ALPHABET. */
     char permute(char p) {
-        return _perms[_alphabet.toInt(p)];
+        return _alphabet.toChar(permute(_alphabet.toInt(p)));
     }
 
     /** Return the result of applying the inverse of this permutation to C. */
     char invert(char c) {
-        int counter = 0;
-        while (counter < _perms.length) {
-            if (_perms[counter] == c) {
-                break;
-            }
-            counter++;
-        }
-        return _alphabet.toChar(counter);
+        return _alphabet.toChar(invert(_alphabet.toInt(c)));
     }
 
     /** Return the alphabet used to initialize this Permutation. */
@@ -105,11 +148,28 @@ class Permutation {
         return _alphabet;
     }
 
+    /** Return the cycles from which this Permutation was built. */
+    String cycles() {
+        return _cycles;
+    }
+
+    /** Return the table of this permutation, whose entry K is
+     *  permute(K).  Modifying it has undefined results. */
+    int[] forwardTable() {
+        return _forward;
+    }
+
+    /** Return the table of the inverse of this permutation, whose entry K
+     *  is invert(K).  Modifying it has undefined results. */
+    int[] inverseTable() {
+        return _inverse;
+    }
+
     /** Return true iff this permutation is a derangement (i.e., a
      *  permutation for which no value maps to itself). */
     boolean derangement() {
-        for (int i = 0; i < _alphabet.size(); i++) {
-            if (_alphabet.toChar(i) == _perms[i]) {
+        for (int i = 0; i < _forward.length; i += 1) {
+            if (_forward[i] == i) {
                 return false;
             }
         }
@@ -117,14 +177,14 @@ class Permutation {
     }
 
     /** Alphabet of this permutation. */
-    private Alphabet _alphabet;
+    private final Alphabet _alphabet;
 
     /** Cycles of this permutation. */
-    private String _cycles;
+    private final String _cycles;
 
-    /** Char array of permutations. */
-    private char[] _perms;
+    /** _forward[K] is the index to which this permutation maps index K. */
+    private final int[] _forward;
 
-    /** String array of the cycles. */
-    private String[] _cycleGroups;
+    /** _inverse[K] is the index that this permutation maps to index K. */
+    private final int[] _inverse;
 }
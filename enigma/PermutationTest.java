@@ -94,4 +94,31 @@ public class PermutationTest {
         assertEquals('1', perm1.invert('1'));
         assertEquals('C', perm1.invert('A'));
     }
+
+    @Test
+    public void testAdjacentCycles() {
+        perm = new Permutation("(AELTPHQXRU)(BKNW) (CMOY)(DFG) (IV) (JZ) (S)",
+                               UPPER);
+        checkPerm("adjacent", UPPER_STRING, NAVALA_MAP.get("I"));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testMissingParen() {
+        new Permutation("(AB) (CD", UPPER);
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testDuplicateLetter() {
+        new Permutation("(AB) (CA)", UPPER);
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testUnknownLetter() {
+        new Permutation("(AB) (C5)", UPPER);
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testLetterOutsideCycle() {
+        new Permutation("(AB) C", UPPER);
+    }
 }
@@ -0,0 +1,321 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import static enigma.EnigmaException.*;
+
+/** Recovers an unknown plugboard for a machine whose rotor order and
+ *  settings are known, by hill climbing (or, optionally, simulated
+ *  annealing) over plugboards, scoring each candidate by the statistics
+ *  of the decryption it gives.
+ *
+ *  Since a machine with plugboard P turns C into P(S_I(P(C))) at
+ *  position I, where S_I is its scrambler (rotors and reflector), the
+ *  scrambler outputs for every position and input are computed once, as
+ *  a table.  Trying a plugboard then costs one pass of table lookups
+ *  over the message, with no machine conversions.  Moves pair two
+ *  letters, unpair them, or exchange their partners.  Independent
+ *  restarts, each from its own random plugboard, run in parallel on a
+ *  ForkJoinPool, and the best result wins.
+ *  @author AldrinSembrana
+ */
+class PlugboardSolver {
+
+    /** Scores candidate decryptions.  Higher is better.  Scorers are
+     *  called concurrently and must not keep TEXT. */
+    interface Scorer {
+        /** Return the score of TEXT, a sequence of alphabet indices. */
+        double score(int[] text);
+    }
+
+    /** Return a scorer giving the index of coincidence of texts over an
+     *  alphabet of SIZE letters: the chance that two letters drawn from
+     *  the text without replacement are the same.  Each thread counts
+     *  letters in an array of its own, reused from one text to the
+     *  next. */
+    static Scorer indexOfCoincidence(int size) {
+        ThreadLocal<int[]> scratch =
+            ThreadLocal.withInitial(() -> new int[size]);
+        return text -> {
+            int[] counts = scratch.get();
+            Arrays.fill(counts, 0);
+            for (int c : text) {
+                counts[c] += 1;
+            }
+            long sum = 0;
+            for (int count : counts) {
+                sum += (long) count * (count - 1);
+            }
+            long n = text.length;
+            return n < 2 ? 0.0 : (double) sum / (n * (n - 1));
+        };
+    }
+
+    /** A solver for the plugboard of MACH, whose rotors are inserted and
+     *  set to the settings at the start of CIPHERTEXT, scoring with
+     *  SCORER and using at most MAXPAIRS >= 0 plugboard pairs.  MACH's
+     *  own plugboard is ignored and its state is not changed. */
+    PlugboardSolver(Machine mach, String ciphertext, Scorer scorer,
+                    int maxPairs) {
+        if (maxPairs < 0) {
+            throw error("negative number of plugboard pairs");
+        }
+        Alphabet alpha = mach.alphabet();
+        _alphabet = alpha;
+        _size = alpha.size();
+        _cipher = alpha.toInts(ciphertext);
+        _scorer = scorer;
+        _maxPairs = Math.min(maxPairs, _size / 2);
+        Permutation plugboard = mach.plugboard();
+        mach.setPlugboard(new Permutation("", alpha));
+        CompiledMachine scrambler = mach.compile();
+        mach.setPlugboard(plugboard);
+        _scrambler = new int[_cipher.length * _size];
+        for (int i = 0; i < _cipher.length; i += 1) {
+            scrambler.advance();
+            for (int c = 0; c < _size; c += 1) {
+                _scrambler[i * _size + c] = scrambler.scramble(c);
+            }
+        }
+    }
+
+    /** Use simulated annealing with starting temperature START and
+     *  cooling factor COOLING (0 < COOLING < 1) per pass, rather than
+     *  plain hill climbing, which accepts only improvements. */
+    void setAnnealing(double start, double cooling) {
+        if (start < 0 || cooling <= 0 || cooling >= 1) {
+            throw error("bad annealing schedule");
+        }
+        _temperature = start;
+        _cooling = cooling;
+    }
+
+    /** Return the best plugboard, in cycle notation, found in RESTARTS
+     *  climbs started from random plugboards drawn using SEED, run on
+     *  POOL.  The result depends only on SEED, not on scheduling. */
+    Result solve(int restarts, long seed, ForkJoinPool pool) {
+        if (restarts <= 0) {
+            throw error("need at least one restart");
+        }
+        ArrayList<ForkJoinTask<Result>> tasks = new ArrayList<>();
+        for (int r = 0; r < restarts; r += 1) {
+            long restartSeed = seed + r;
+            tasks.add(ForkJoinTask.adapt(() -> climb(restartSeed)));
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        Result best = null;
+        for (ForkJoinTask<Result> task : tasks) {
+            Result result = task.join();
+            if (best == null || result._score > best._score) {
+                best = result;
+            }
+        }
+        return best;
+    }
+
+    /** Return the best plugboard found as for solve(RESTARTS, SEED,
+     *  POOL), running on the common pool. */
+    Result solve(int restarts, long seed) {
+        return solve(restarts, seed, ForkJoinPool.commonPool());
+    }
+
+    /** Return the best plugboard reached by one climb from a random
+     *  plugboard chosen using SEED. */
+    private Result climb(long seed) {
+        Random random = new Random(seed);
+        int[] plug = new int[_size];
+        for (int c = 0; c < _size; c += 1) {
+            plug[c] = c;
+        }
+        int pairs = 0;
+        for (int k = random.nextInt(_maxPairs + 1); pairs < k; ) {
+            int a = random.nextInt(_size), b = random.nextInt(_size);
+            if (a != b && plug[a] == a && plug[b] == b) {
+                plug[a] = b;
+                plug[b] = a;
+                pairs += 1;
+            }
+        }
+        int[] text = new int[_cipher.length];
+        double score = score(plug, text);
+        int[] best = plug.clone();
+        double bestScore = score;
+        double temperature = _temperature;
+        for (int pass = 0; pass < MAX_PASSES; pass += 1) {
+            boolean improved = false;
+            for (int a = 0; a < _size; a += 1) {
+                for (int b = a + 1; b < _size; b += 1) {
+                    for (int kind = PAIR; kind <= SWAP; kind += 1) {
+                        int pa = plug[a], pb = plug[b];
+                        int newPairs;
+                        if (kind == PAIR) {
+                            newPairs = move(plug, a, b, pairs);
+                        } else if (pa != a && pb != b && pa != b) {
+                            swap(plug, a, b);
+                            newPairs = pairs;
+                        } else {
+                            continue;
+                        }
+                        if (newPairs > _maxPairs) {
+                            undo(plug, a, b, pa, pb);
+                            continue;
+                        }
+                        double trial = score(plug, text);
+                        if (trial > score
+                            || (temperature > 0 && random.nextDouble()
+                                < Math.exp((trial - score) / temperature))) {
+                            improved |= trial > score;
+                            score = trial;
+                            pairs = newPairs;
+                            if (score > bestScore) {
+                                bestScore = score;
+                                System.arraycopy(plug, 0, best, 0, _size);
+                            }
+                        } else {
+                            undo(plug, a, b, pa, pb);
+                        }
+                    }
+                }
+            }
+            temperature *= _cooling;
+            if (!improved && temperature < MIN_TEMPERATURE) {
+                break;
+            }
+        }
+        return new Result(cycles(best), bestScore);
+    }
+
+    /** Change the involution PLUG, which has PAIRS pairs, by pairing
+     *  A < B, or unpairing them if they are paired with each other.
+     *  Letters left without partners stand alone.  Returns the new
+     *  number of pairs. */
+    private static int move(int[] plug, int a, int b, int pairs) {
+        int pa = plug[a], pb = plug[b];
+        if (pa == b) {
+            plug[a] = a;
+            plug[b] = b;
+            return pairs - 1;
+        }
+        pairs -= (pa != a ? 1 : 0) + (pb != b ? 1 : 0);
+        plug[pa] = pa;
+        plug[pb] = pb;
+        plug[a] = b;
+        plug[b] = a;
+        return pairs + 1;
+    }
+
+    /** Change the involution PLUG, in which A and B are in two different
+     *  pairs, by exchanging their partners. */
+    private static void swap(int[] plug, int a, int b) {
+        int pa = plug[a], pb = plug[b];
+        plug[a] = pb;
+        plug[pb] = a;
+        plug[b] = pa;
+        plug[pa] = b;
+    }
+
+    /** Undo move(PLUG, A, B, ...) or swap(PLUG, A, B), where A and B had
+     *  partners PA and PB before it. */
+    private static void undo(int[] plug, int a, int b, int pa, int pb) {
+        plug[plug[a]] = plug[a];
+        plug[plug[b]] = plug[b];
+        plug[a] = pa;
+        plug[pa] = a;
+        plug[b] = pb;
+        plug[pb] = b;
+    }
+
+    /** Return the score of the decryption with plugboard PLUG, using
+     *  TEXT to hold it. */
+    private double score(int[] plug, int[] text) {
+        int[] scrambler = _scrambler, cipher = _cipher;
+        for (int i = 0, base = 0; i < cipher.length; i += 1, base += _size) {
+            text[i] = plug[scrambler[base + plug[cipher[i]]]];
+        }
+        return _scorer.score(text);
+    }
+
+    /** Return the pairs of the involution PLUG, in cycle notation. */
+    private String cycles(int[] plug) {
+        StringBuilder result = new StringBuilder();
+        for (int c = 0; c < _size; c += 1) {
+            if (plug[c] > c) {
+                if (result.length() > 0) {
+                    result.append(' ');
+                }
+                result.append('(').append(_alphabet.toChar(c))
+                    .append(_alphabet.toChar(plug[c])).append(')');
+            }
+        }
+        return result.toString();
+    }
+
+    /** A plugboard and its score. */
+    static final class Result {
+        /** A result for the plugboard PLUGBOARD, in cycle notation,
+         *  scoring SCORE. */
+        Result(String plugboard, double score) {
+            _plugboard = plugboard;
+            _score = score;
+        }
+
+        /** Return the plugboard, in cycle notation. */
+        String plugboard() {
+            return _plugboard;
+        }
+
+        /** Return the score of the decryption it gives. */
+        double score() {
+            return _score;
+        }
+
+        @Override
+        public String toString() {
+            return _plugboard + " " + _score;
+        }
+
+        /** Plugboard. */
+        private final String _plugboard;
+        /** Score. */
+        private final double _score;
+    }
+
+    /** Most passes over all pairs of letters in one climb. */
+    static final int MAX_PASSES = 200;
+
+    /** Kinds of move tried on each pair of letters: pairing (or
+     *  unpairing) them, and exchanging their partners. */
+    private static final int PAIR = 0, SWAP = 1;
+
+    /** Temperature below which annealing counts as hill climbing. */
+    private static final double MIN_TEMPERATURE = 1e-6;
+
+    /** The alphabet. */
+    private final Alphabet _alphabet;
+
+    /** Size of the alphabet. */
+    private final int _size;
+
+    /** The ciphertext, as indices. */
+    private final int[] _cipher;
+
+    /** _scrambler[I * size + C] is the scrambler's output for C at
+     *  position I of the ciphertext. */
+    private final int[] _scrambler;
+
+    /** Scores decryptions. */
+    private final Scorer _scorer;
+
+    /** Most plugboard pairs allowed. */
+    private final int _maxPairs;
+
+    /** Starting temperature for annealing; 0 for hill climbing. */
+    private double _temperature;
+
+    /** Cooling factor per pass. */
+    private double _cooling = 0.5;
+}
@@ -0,0 +1,90 @@
+package enigma;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the PlugboardSolver and NgramTable
+ *  classes.
+ *  @author AldrinSembrana
+ */
+public class PlugboardSolverTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    private static final String[] ROTORS = { "B", "Beta", "III", "IV",
+                                             "I" };
+
+    private static final String PLUGBOARD = "(AR) (BZ) (DP) (QT)";
+
+    /** Return the letters of HIAWATHA, without blanks. */
+    private static String letters() {
+        return HIAWATHA.replace(" ", "");
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testNgramTable() {
+        NgramTable table = NgramTable.train(UPPER, 2, "AB AB. AC");
+        assertEquals(26 * 26, NgramTable.entries(26, 2));
+        assertEquals(2, table.n());
+        assertEquals((float) Math.log10(2.0 / 5), table.logProb(1), 1e-6);
+        assertEquals((float) Math.log10(2.0 / 5), table.logProb(26 + 0),
+                     1e-6);
+        assertEquals((float) Math.log10(1.0 / 5), table.logProb(2), 1e-6);
+        assertTrue(table.logProb(25) < table.logProb(2));
+        assertEquals(3 * Math.log10(2.0 / 5),
+                     table.score(UPPER.toInts("ABAB")), 1e-5);
+    }
+
+    @Test
+    public void testIndexOfCoincidence() {
+        PlugboardSolver.Scorer ioc = PlugboardSolver.indexOfCoincidence(26);
+        assertEquals(1.0, ioc.score(UPPER.toInts("AAAA")), 1e-9);
+        assertEquals(0.0, ioc.score(UPPER.toInts("ABCD")), 1e-9);
+        assertEquals(4.0 / 12, ioc.score(UPPER.toInts("AABB")), 1e-9);
+    }
+
+    @Test
+    public void testRecoversPlugboard() {
+        String cipher = navalMachine(ROTORS, "AXLE", PLUGBOARD)
+            .convert(letters());
+        NgramTable trigrams = NgramTable.train(UPPER, 3, HIAWATHA);
+        Machine mach = navalMachine(ROTORS, "AXLE", "");
+        PlugboardSolver solver = new PlugboardSolver(mach, cipher,
+                                                     trigrams, 10);
+        PlugboardSolver.Result result = solver.solve(4, 24,
+                                                     new ForkJoinPool(2));
+        assertEquals(PLUGBOARD, result.plugboard());
+        assertEquals(trigrams.score(UPPER.toInts(letters())),
+                     result.score(), 1e-3);
+        assertEquals(result.toString(), solver.solve(4, 24).toString());
+    }
+
+    @Test
+    public void testAnnealing() {
+        String cipher = navalMachine(ROTORS, "AXLE", PLUGBOARD)
+            .convert(letters());
+        PlugboardSolver solver = new PlugboardSolver(
+            navalMachine(ROTORS, "AXLE", ""), cipher,
+            NgramTable.train(UPPER, 2, HIAWATHA), 10);
+        solver.setAnnealing(1.0, 0.8);
+        assertEquals(PLUGBOARD, solver.solve(4, 25).plugboard());
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testNegativeMaxPairs() {
+        new PlugboardSolver(navalMachine(ROTORS, "AXLE", ""), "HELLO",
+                            PlugboardSolver.indexOfCoincidence(26), -1);
+    }
+}
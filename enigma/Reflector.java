@@ -23,6 +23,11 @@ class Reflector extends FixedRotor {
         return convertForward(e);
     }
 
+    @Override
+    int convertBackward(int e, int setting) {
+        return convertForward(e, setting);
+    }
+
     @Override
     void set(int posn) {
         if (posn != 0) {
@@ -0,0 +1,273 @@
+package enigma;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.locks.LockSupport;
+
+import static enigma.EnigmaException.*;
+
+/** A Tracer that records the stages of each conversion as ints in a
+ *  preallocated ring buffer, which a background thread drains to an
+ *  output stream.  The converting thread thus neither allocates nor
+ *  formats nor does I/O; it waits only when the buffer is full.
+ *
+ *  In text form, each conversion becomes one line
+ *      [SETTINGS] IN -> PLUGGED -> ... -> OUT
+ *  showing the settings of the non-reflector rotors and the character
+ *  after each stage.  In binary form, each event is written as a
+ *  big-endian int whose top byte is its kind (SETTING, INPUT, STAGE or
+ *  FINISH) and whose low 24 bits are a character index.
+ *
+ *  A RingTracer must be used by only one converting thread, and must be
+ *  closed to make sure everything it has been told is written.
+ *  @author AldrinSembrana
+ */
+class RingTracer implements Tracer, AutoCloseable {
+
+    /** Event kind of the setting of one rotor. */
+    static final int SETTING = 0;
+    /** Event kind of the character being converted. */
+    static final int INPUT = 1;
+    /** Event kind of the result of one stage. */
+    static final int STAGE = 2;
+    /** Event kind of the final result of a conversion. */
+    static final int FINISH = 3;
+
+    /** Default number of events in the ring buffer. */
+    static final int DEFAULT_CAPACITY = 1 << 16;
+
+    /** A tracer writing records about conversions on alphabet ALPHA to
+     *  OUT, in binary iff BINARY, through a ring buffer with room for at
+     *  least CAPACITY > 0 events.  OUT is flushed, not closed, by
+     *  close(). */
+    RingTracer(Alphabet alpha, OutputStream out, boolean binary,
+               int capacity) {
+        if (capacity <= 0) {
+            throw error("trace buffer must have positive capacity");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        _alphabet = alpha;
+        _out = out;
+        _binary = binary;
+        _ring = new int[size];
+        _mask = size - 1;
+        _drainer = new Thread(this::drain, "enigma-trace");
+        _drainer.setDaemon(true);
+        _drainer.start();
+    }
+
+    /** A text tracer writing to OUT about conversions on alphabet
+     *  ALPHA, with a buffer of the default capacity. */
+    RingTracer(Alphabet alpha, OutputStream out) {
+        this(alpha, out, false, DEFAULT_CAPACITY);
+    }
+
+    @Override
+    public void start(int[] positions, int c) {
+        for (int i = 1; i < positions.length; i += 1) {
+            put(SETTING, positions[i]);
+        }
+        put(INPUT, c);
+    }
+
+    @Override
+    public void stage(int c) {
+        put(STAGE, c);
+    }
+
+    @Override
+    public void finish(int c) {
+        put(FINISH, c);
+        _published = _next;
+    }
+
+    /** Write out everything recorded so far and stop the background
+     *  thread.  Throws an EnigmaException if writing failed. */
+    @Override
+    public void close() {
+        _published = _next;
+        _closed = true;
+        LockSupport.unpark(_drainer);
+        boolean interrupted = false;
+        while (_drainer.isAlive()) {
+            try {
+                _drainer.join();
+            } catch (InterruptedException excp) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (_failure != null) {
+            throw error("could not write trace: %s", _failure.getMessage());
+        }
+    }
+
+    /** Add an event of kind KIND with value VALUE to the ring, first
+     *  waiting for room if it is full. */
+    private void put(int kind, int value) {
+        if (_next - _consumed > _mask) {
+            _published = _next;
+            while (_next - _consumed > _mask && _failure == null) {
+                LockSupport.unpark(_drainer);
+                Thread.onSpinWait();
+            }
+        }
+        _ring[(int) (_next & _mask)] =
+            (kind << KIND_SHIFT) | (value & VALUE_MASK);
+        _next += 1;
+    }
+
+    /** Body of the background thread: write out published events until
+     *  closed, flushing whenever the ring runs dry.  If writing fails,
+     *  records why and stops making the producer wait. */
+    private void drain() {
+        try {
+            Sink sink = _binary ? new BinarySink() : new TextSink();
+            long consumed = 0;
+            while (true) {
+                long published = _published;
+                if (published == consumed) {
+                    sink.flush();
+                    if (_closed && _published == consumed) {
+                        return;
+                    }
+                    LockSupport.parkNanos(IDLE_NANOS);
+                    continue;
+                }
+                for (; consumed < published; consumed += 1) {
+                    int event = _ring[(int) (consumed & _mask)];
+                    sink.write(event >>> KIND_SHIFT, event & VALUE_MASK);
+                }
+                _consumed = consumed;
+            }
+        } catch (IOException | RuntimeException excp) {
+            _failure = excp;
+            _consumed = Long.MAX_VALUE / 2;
+        }
+    }
+
+    /** A destination for decoded events. */
+    private interface Sink {
+        /** Record an event of kind KIND with value VALUE. */
+        void write(int kind, int value) throws IOException;
+
+        /** Push everything recorded so far to the output stream. */
+        void flush() throws IOException;
+    }
+
+    /** Writes events as lines of text. */
+    private class TextSink implements Sink {
+        @Override
+        public void write(int kind, int value) throws IOException {
+            char c = _alphabet.toChar(value);
+            switch (kind) {
+            case SETTING:
+                if (!_inSettings) {
+                    _text.write('[');
+                    _inSettings = true;
+                }
+                _text.write(c);
+                break;
+            case INPUT:
+                if (!_inSettings) {
+                    _text.write('[');
+                }
+                _inSettings = false;
+                _text.write("] ");
+                _text.write(c);
+                break;
+            case STAGE:
+                _text.write(" -> ");
+                _text.write(c);
+                break;
+            default:
+                _text.write(" -> ");
+                _text.write(c);
+                _text.write(System.lineSeparator());
+                break;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            _text.flush();
+        }
+
+        /** Buffered character stream onto _out. */
+        private final Writer _text =
+            new OutputStreamWriter(new BufferedOutputStream(_out));
+
+        /** True iff the last event written was a setting. */
+        private boolean _inSettings;
+    }
+
+    /** Writes events as raw ints. */
+    private class BinarySink implements Sink {
+        @Override
+        public void write(int kind, int value) throws IOException {
+            _data.writeInt((kind << KIND_SHIFT) | value);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            _data.flush();
+        }
+
+        /** Buffered binary stream onto _out. */
+        private final DataOutputStream _data =
+            new DataOutputStream(new BufferedOutputStream(_out));
+    }
+
+    /** Position of the kind of an event within its int. */
+    private static final int KIND_SHIFT = 24;
+
+    /** Mask selecting the value of an event. */
+    private static final int VALUE_MASK = (1 << KIND_SHIFT) - 1;
+
+    /** Nanoseconds the background thread sleeps when the ring is empty. */
+    private static final long IDLE_NANOS = 200_000;
+
+    /** Alphabet of the characters being traced. */
+    private final Alphabet _alphabet;
+
+    /** Destination of the trace. */
+    private final OutputStream _out;
+
+    /** True iff the trace is written in binary. */
+    private final boolean _binary;
+
+    /** The ring buffer of encoded events.  Event number N is in
+     *  _ring[N & _mask]. */
+    private final int[] _ring;
+
+    /** _ring.length - 1, where _ring.length is a power of 2. */
+    private final int _mask;
+
+    /** The thread that writes out events. */
+    private final Thread _drainer;
+
+    /** Number of events put so far; touched only by the producer. */
+    private long _next;
+
+    /** Number of events the producer has made visible to _drainer. */
+    private volatile long _published;
+
+    /** Number of events _drainer has written out (or a huge value once
+     *  it has failed, so the producer never waits for it). */
+    private volatile long _consumed;
+
+    /** True once close() has been called. */
+    private volatile boolean _closed;
+
+    /** The exception that stopped _drainer, if any. */
+    private volatile Exception _failure;
+}
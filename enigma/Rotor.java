@@ -3,6 +3,14 @@ package enigma;
 import static enigma.EnigmaException.*;
 
 /** Superclass that represents a rotor in the enigma machine.
+ *
+ *  A rotor's wiring never changes.  A rotor used by itself also has a
+ *  setting, which set(), advance(), atNotch() and the one-argument
+ *  conversions use.  Machines keep the settings of their slots
+ *  themselves and never use that setting.  A Catalog calls share() on
+ *  each of its rotors, after which the setting can no longer be changed,
+ *  so that any number of Machines, on any threads, may share them
+ *  without any mutable state.
  *  @author AldrinSembrana
  */
 class Rotor {
@@ -12,6 +20,33 @@ class Rotor {
         _name = name;
         _permutation = perm;
         _setting = 0;
+        int n = perm.size();
+        if ((long) n * n <= MAX_TABLE_ENTRIES) {
+            _forwardTable = new int[n * n];
+            _backwardTable = new int[n * n];
+            for (int s = 0; s < n; s += 1) {
+                for (int p = 0; p < n; p += 1) {
+                    _forwardTable[s * n + p] =
+                        perm.wrap(perm.permute(p + s) - s);
+                    _backwardTable[s * n + p] =
+                        perm.wrap(perm.invert(p + s) - s);
+                }
+            }
+        } else {
+            _forwardTable = _backwardTable = null;
+        }
+    }
+
+    /** Fix my setting from now on, so that I may be shared by any
+     *  number of machines on any threads: set() and advance() will
+     *  throw an EnigmaException. */
+    void share() {
+        _shared = true;
+    }
+
+    /** Return true iff share() has been called on me. */
+    boolean isShared() {
+        return _shared;
     }
 
     /** Return my name. */
@@ -51,34 +86,56 @@ class Rotor {
 
     /** Set setting() to POSN.  */
     void set(int posn) {
+        checkNotShared();
         _setting = permutation().wrap(posn);
     }
 
     /** Set setting() to character CPOSN. */
     void set(char cposn) {
+        checkNotShared();
         _setting = alphabet().toInt(cposn);
     }
 
+    /** Throw an EnigmaException if I am shared (see share()). */
+    private void checkNotShared() {
+        if (_shared) {
+            throw error("rotor %s is shared by machines and cannot be set",
+                        _name);
+        }
+    }
+
     /** Return the conversion of P (an integer in the range 0..size()-1)
      *  according to my permutation. */
     int convertForward(int p) {
-        int result = permutation().wrap((permutation().permute
-                (p + setting())) - setting());
-        if (Main.verbose()) {
-            System.err.printf("%c -> ", alphabet().toChar(result));
-        }
-        return result;
+        return convertForward(p, _setting);
     }
 
     /** Return the conversion of E (an integer in the range 0..size()-1)
      *  according to the inverse of my permutation. */
     int convertBackward(int e) {
-        int result = permutation().wrap((permutation().invert
-                (e + setting())) - setting());
-        if (Main.verbose()) {
-            System.err.printf("%c -> ", alphabet().toChar(result));
+        return convertBackward(e, _setting);
+    }
+
+    /** Return the conversion of P (an integer in the range 0..size()-1)
+     *  according to my permutation when I am at setting SETTING,
+     *  regardless of setting(). */
+    int convertForward(int p, int setting) {
+        if (_forwardTable != null) {
+            return _forwardTable[setting * size() + p];
+        }
+        return permutation().wrap((permutation().permute
+                (p + setting)) - setting);
+    }
+
+    /** Return the conversion of E (an integer in the range 0..size()-1)
+     *  according to the inverse of my permutation when I am at setting
+     *  SETTING, regardless of setting(). */
+    int convertBackward(int e, int setting) {
+        if (_backwardTable != null) {
+            return _backwardTable[setting * size() + e];
         }
-        return result;
+        return permutation().wrap((permutation().invert
+                (e + setting)) - setting);
     }
 
     /** Returns the positions of the notches, as a string giving the letters
@@ -93,6 +150,25 @@ class Rotor {
         return false;
     }
 
+    /** Returns true iff setting POSN is one of my notches. */
+    boolean isNotch(int posn) {
+        return false;
+    }
+
+    /** Returns my table of forward conversions, whose entry
+     *  S * size() + P is convertForward(P) at setting S, or null if my
+     *  alphabet is too large to tabulate.  Modifying it has undefined
+     *  results. */
+    int[] forwardTable() {
+        return _forwardTable;
+    }
+
+    /** Returns my table of backward conversions, laid out as for
+     *  forwardTable(), or null.  Modifying it has undefined results. */
+    int[] backwardTable() {
+        return _backwardTable;
+    }
+
     /** Advance me one position, if possible. By default, does nothing. */
     void advance() {
     }
@@ -102,14 +178,29 @@ class Rotor {
         return "Rotor " + _name;
     }
 
+    /** Largest number of entries (alphabet size squared) in each of
+     *  _forwardTable and _backwardTable.  Rotors over larger alphabets
+     *  compute their conversions arithmetically. */
+    static final int MAX_TABLE_ENTRIES = 1 << 16;
+
     /** My name. */
     private final String _name;
 
     /** The permutation implemented by this rotor in its 0 position. */
     private Permutation _permutation;
 
-    /** Rotor setting. */
+    /** Rotor setting when used by itself; never used by Machine. */
     private int _setting;
 
+    /** True iff share() has fixed my setting. */
+    private volatile boolean _shared;
+
+    /** When non-null, entry S * size() + P is convertForward(P) at
+     *  setting S. */
+    private final int[] _forwardTable;
+
+    /** When non-null, entry S * size() + E is convertBackward(E) at
+     *  setting S. */
+    private final int[] _backwardTable;
 
 }
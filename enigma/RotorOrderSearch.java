@@ -0,0 +1,322 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static enigma.EnigmaException.*;
+
+/** A search over every rotor order a catalog allows (a reflector, then
+ *  distinct fixed rotors, then distinct moving rotors) and every setting
+ *  of each order, keeping the best-scoring few.  Scores come from a
+ *  pluggable Scorer.  Each order is compiled once, sharing the rotors'
+ *  tables, and the (order, setting) pairs are divided among the workers
+ *  of a ForkJoinPool, each with its own copy of the order's machine and
+ *  its own bounded heap of results; the heaps are merged at the end.
+ *  @author AldrinSembrana
+ */
+class RotorOrderSearch {
+
+    /** Scores candidate machines.  Higher is better. */
+    interface Scorer {
+        /** Return the score of MACH, which is at the setting being
+         *  scored and may be used (but not kept) to convert text.  Called
+         *  concurrently from several threads, each with its own MACH. */
+        double score(CompiledMachine mach);
+    }
+
+    /** A search over the rotor orders of CATALOG, with plugboard
+     *  PLUGBOARD, keeping the TOPK > 0 best results by SCORER. */
+    RotorOrderSearch(Catalog catalog, Permutation plugboard, Scorer scorer,
+                     int topK) {
+        if (topK <= 0) {
+            throw error("must keep at least one result");
+        }
+        _scorer = scorer;
+        _topK = topK;
+        _space = new SettingSpace(catalog.alphabet(), catalog.numRotors());
+        _orders = orders(catalog);
+        _templates = new CompiledMachine[_orders.size()];
+        for (int i = 0; i < _templates.length; i += 1) {
+            Machine mach = catalog.newMachine();
+            mach.insertRotors(_orders.get(i));
+            mach.setPlugboard(plugboard);
+            _templates[i] = mach.compile();
+        }
+    }
+
+    /** Return every rotor order that CATALOG allows, each an array of
+     *  rotor names as accepted by Machine.insertRotors: a reflector, then
+     *  distinct fixed rotors, then distinct moving rotors. */
+    static List<String[]> orders(Catalog catalog) {
+        ArrayList<Rotor> reflectors = new ArrayList<>(),
+            fixed = new ArrayList<>(), moving = new ArrayList<>();
+        for (Rotor rotor : catalog.rotors()) {
+            if (rotor.reflecting()) {
+                reflectors.add(rotor);
+            } else if (rotor.rotates()) {
+                moving.add(rotor);
+            } else {
+                fixed.add(rotor);
+            }
+        }
+        int numFixed = catalog.numRotors() - catalog.numPawls() - 1;
+        String[] order = new String[catalog.numRotors()];
+        ArrayList<String[]> result = new ArrayList<>();
+        for (Rotor reflector : reflectors) {
+            order[0] = reflector.name();
+            arrange(fixed, order, 1, 1 + numFixed,
+                    () -> arrange(moving, order, 1 + numFixed, order.length,
+                                  () -> result.add(order.clone())));
+        }
+        return result;
+    }
+
+    /** Fill ORDER[FROM .. TO-1] in turn with each arrangement of
+     *  distinct rotors from CHOICES, calling ACTION for each. */
+    private static void arrange(List<Rotor> choices, String[] order,
+                                int from, int to, Runnable action) {
+        if (from == to) {
+            action.run();
+            return;
+        }
+        for (Rotor rotor : choices) {
+            boolean used = false;
+            for (int k = 1; k < from; k += 1) {
+                used |= order[k].equals(rotor.name());
+            }
+            if (!used) {
+                order[from] = rotor.name();
+                arrange(choices, order, from + 1, to, action);
+            }
+        }
+    }
+
+    /** Return the rotor orders searched, each an array of rotor names
+     *  as accepted by Machine.insertRotors.  The arrays must not be
+     *  modified. */
+    List<String[]> orders() {
+        return _orders;
+    }
+
+    /** Return the best results, best first, searching on POOL.  Equal
+     *  scores are ranked by order, then setting, in the order they are
+     *  searched. */
+    List<Result> search(ForkJoinPool pool) {
+        TopK best = pool.invoke(new Part(0, _templates.length, 0,
+                                         _space.count()));
+        ArrayList<Entry> entries = new ArrayList<>(best._heap);
+        entries.sort(Collections.reverseOrder());
+        ArrayList<Result> result = new ArrayList<>();
+        for (Entry entry : entries) {
+            result.add(new Result(_orders.get(entry._order),
+                                  _space.toString(entry._index),
+                                  entry._score));
+        }
+        return result;
+    }
+
+    /** Return the best results, as for search(POOL), searching on the
+     *  common pool. */
+    List<Result> search() {
+        return search(ForkJoinPool.commonPool());
+    }
+
+    /** Return a scorer counting the characters of CRIB that a machine
+     *  reproduces from CIPHERTEXT, starting OFFSET characters into it;
+     *  ALPHA is the alphabet of both. */
+    static Scorer cribScorer(Alphabet alpha, String ciphertext, String crib,
+                             int offset) {
+        if (offset < 0 || offset + crib.length() > ciphertext.length()) {
+            throw error("crib does not fit in the ciphertext");
+        }
+        int[] cipher = alpha.toInts(ciphertext.substring(
+            offset, offset + crib.length()));
+        int[] plain = alpha.toInts(crib);
+        return mach -> {
+            for (int i = 0; i < offset; i += 1) {
+                mach.advance();
+            }
+            int matches = 0;
+            for (int i = 0; i < cipher.length; i += 1) {
+                if (mach.convert(cipher[i]) == plain[i]) {
+                    matches += 1;
+                }
+            }
+            return matches;
+        };
+    }
+
+    /** One of the best results of a search. */
+    static final class Result {
+        /** The result for rotor order ROTORS at setting SETTING, scoring
+         *  SCORE. */
+        Result(String[] rotors, String setting, double score) {
+            _rotors = rotors;
+            _setting = setting;
+            _score = score;
+        }
+
+        /** Return the rotor names, as accepted by
+         *  Machine.insertRotors.  The array must not be modified. */
+        String[] rotors() {
+            return _rotors;
+        }
+
+        /** Return the setting, as accepted by Machine.setRotors. */
+        String setting() {
+            return _setting;
+        }
+
+        /** Return the score. */
+        double score() {
+            return _score;
+        }
+
+        @Override
+        public String toString() {
+            return String.join(" ", _rotors) + " " + _setting + " "
+                + _score;
+        }
+
+        /** Rotor order. */
+        private final String[] _rotors;
+        /** Setting. */
+        private final String _setting;
+        /** Score. */
+        private final double _score;
+    }
+
+    /** A scored (order, setting) pair. */
+    private static final class Entry implements Comparable<Entry> {
+        /** The pair of order #ORDER and setting #INDEX, scoring SCORE. */
+        Entry(int order, long index, double score) {
+            _order = order;
+            _index = index;
+            _score = score;
+        }
+
+        /** Return true iff I rank below the pair of order #ORDER and
+         *  setting #INDEX, scoring SCORE: I score less, or the same but
+         *  come later. */
+        boolean below(int order, long index, double score) {
+            if (_score != score) {
+                return _score < score;
+            } else if (_order != order) {
+                return _order > order;
+            }
+            return _index > index;
+        }
+
+        /** Ranks worse entries first. */
+        @Override
+        public int compareTo(Entry other) {
+            if (below(other._order, other._index, other._score)) {
+                return -1;
+            }
+            return other.below(_order, _index, _score) ? 1 : 0;
+        }
+
+        /** Index of the rotor order. */
+        private final int _order;
+        /** Number of the setting. */
+        private final long _index;
+        /** Score. */
+        private final double _score;
+    }
+
+    /** A bounded heap of the best entries seen so far. */
+    private final class TopK {
+        /** Consider the pair of order #ORDER and setting #INDEX, scoring
+         *  SCORE.  Allocates only if the pair is kept. */
+        void offer(int order, long index, double score) {
+            if (_heap.size() == _topK) {
+                if (!_heap.peek().below(order, index, score)) {
+                    return;
+                }
+                _heap.poll();
+            }
+            _heap.add(new Entry(order, index, score));
+        }
+
+        /** Add the entries of OTHER to mine, keeping the best.  Returns
+         *  this. */
+        TopK merge(TopK other) {
+            for (Entry entry : other._heap) {
+                offer(entry._order, entry._index, entry._score);
+            }
+            return this;
+        }
+
+        /** My entries, worst at the head. */
+        private final PriorityQueue<Entry> _heap = new PriorityQueue<>();
+    }
+
+    /** A fork/join task scoring the settings in a range of every order
+     *  in a range. */
+    private final class Part extends RecursiveTask<TopK> {
+        /** A task scoring settings LO .. HI-1 of orders FIRST ..
+         *  LAST-1. */
+        Part(int first, int last, long lo, long hi) {
+            _first = first;
+            _last = last;
+            _lo = lo;
+            _hi = hi;
+        }
+
+        @Override
+        protected TopK compute() {
+            TopK best = new TopK();
+            if (_first == _last) {
+                return best;
+            } else if (_last - _first > 1) {
+                int mid = (_first + _last) / 2;
+                Part left = new Part(_first, mid, _lo, _hi);
+                left.fork();
+                TopK right = new Part(mid, _last, _lo, _hi).compute();
+                return right.merge(left.join());
+            } else if (_hi - _lo > LEAF_SIZE) {
+                long mid = _lo + (_hi - _lo) / 2;
+                Part left = new Part(_first, _last, _lo, mid);
+                left.fork();
+                TopK right = new Part(_first, _last, mid, _hi).compute();
+                return right.merge(left.join());
+            }
+            CompiledMachine mach = _templates[_first].copy();
+            int[] positions = _space.positions(_lo);
+            for (long index = _lo; index < _hi; index += 1) {
+                mach.setAll(positions);
+                best.offer(_first, index, _scorer.score(mach));
+                _space.next(positions);
+            }
+            return best;
+        }
+
+        /** Bounds of the orders I score. */
+        private final int _first, _last;
+
+        /** Bounds of the settings I score. */
+        private final long _lo, _hi;
+    }
+
+    /** The largest number of settings scored by one task. */
+    static final int LEAF_SIZE = 1 << 12;
+
+    /** Scores candidates. */
+    private final Scorer _scorer;
+
+    /** Number of results kept. */
+    private final int _topK;
+
+    /** The settings of each order. */
+    private final SettingSpace _space;
+
+    /** The rotor orders searched. */
+    private final List<String[]> _orders;
+
+    /** A compiled machine for each order, in the order of _orders. */
+    private final CompiledMachine[] _templates;
+}
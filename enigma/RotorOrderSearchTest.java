@@ -0,0 +1,82 @@
+package enigma;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the RotorOrderSearch class.
+ *  @author AldrinSembrana
+ */
+public class RotorOrderSearchTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return a small catalog: 4 slots and 2 pawls over a 6-letter
+     *  alphabet, with 2 reflectors, 2 fixed rotors and 3 moving
+     *  rotors. */
+    private static Catalog smallCatalog() {
+        Alphabet alpha = new Alphabet("ABCDEF");
+        return new Catalog(alpha, 4, 2, List.of(
+            new Reflector("R1", new Permutation("(AB) (CD) (EF)", alpha)),
+            new Reflector("R2", new Permutation("(AF) (BE) (CD)", alpha)),
+            new FixedRotor("F1", new Permutation("(ACE)", alpha)),
+            new FixedRotor("F2", new Permutation("(ABDF)", alpha)),
+            new MovingRotor("M1", new Permutation("(ABCDEF)", alpha), "C"),
+            new MovingRotor("M2", new Permutation("(AED) (BF)", alpha), "A"),
+            new MovingRotor("M3", new Permutation("(ACFBDE)", alpha),
+                            "F")));
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testOrders() {
+        Catalog naval = new Catalog(UPPER, 5, 3, navalRotors());
+        RotorOrderSearch search = new RotorOrderSearch(
+            naval, new Permutation("", UPPER), mach -> 0, 1);
+        assertEquals(2 * 2 * 8 * 7 * 6, search.orders().size());
+        assertEquals(2 * 2 * 3 * 2,
+                     new RotorOrderSearch(smallCatalog(),
+                                          new Permutation("", new Alphabet(
+                                                  "ABCDEF")),
+                                          mach -> 0, 1).orders().size());
+    }
+
+    @Test
+    public void testFindsOrder() {
+        Catalog catalog = smallCatalog();
+        Permutation plugboard = new Permutation("(AC)", catalog.alphabet());
+        Machine mach = catalog.newMachine();
+        mach.insertRotors(new String[] { "R2", "F1", "M3", "M1" });
+        mach.setRotors("DBE");
+        mach.setPlugboard(plugboard);
+        String plain = randomText("ABCDEF", 40, new Random(22));
+        String cipher = mach.convert(plain);
+        RotorOrderSearch search = new RotorOrderSearch(
+            catalog, plugboard,
+            RotorOrderSearch.cribScorer(catalog.alphabet(), cipher,
+                                        plain.substring(5), 5), 3);
+        List<RotorOrderSearch.Result> best = search.search(
+            new ForkJoinPool(2));
+        assertEquals(3, best.size());
+        assertEquals(35.0, best.get(0).score(), 0.0);
+        assertTrue(best.get(1).score() <= best.get(0).score());
+        assertTrue(best.get(2).score() <= best.get(1).score());
+        mach.insertRotors(best.get(0).rotors());
+        mach.setRotors(best.get(0).setting());
+        assertEquals(plain.substring(5), mach.convert(cipher).substring(5));
+        assertEquals(best.get(0).toString(),
+                     search.search().get(0).toString());
+    }
+}
@@ -59,4 +59,22 @@ public class RotorTest {
         assertEquals(2, testRotor2.convertBackward(10));
         assertEquals(6, testRotor2.convertBackward(5));
     }
+
+    @Test
+    public void testLargeAlphabet() {
+        StringBuilder chars = new StringBuilder();
+        for (char c = '\u0100'; c < '\u0100' + 300; c += 1) {
+            chars.append(c);
+        }
+        Alphabet big = new Alphabet(chars.toString());
+        Permutation p = new Permutation("(\u0100\u0101\u0200)", big);
+        Rotor rotor = new Rotor("big", p);
+        rotor.set(299);
+        assertEquals(2, rotor.convertForward(1));
+        assertEquals(257, rotor.convertForward(2));
+        assertEquals(1, rotor.convertForward(257));
+        assertEquals(1, rotor.convertBackward(2));
+        assertEquals(2, rotor.convertBackward(257));
+        assertEquals(5, rotor.convertBackward(5));
+    }
 }
@@ -0,0 +1,87 @@
+package enigma;
+
+import static enigma.EnigmaException.*;
+
+/** The rotor settings that Machine.setRotors accepts for machines with
+ *  a given number of slots and alphabet, numbered like the digits of a
+ *  number whose most significant digit is the setting of slot 1 and
+ *  least significant that of the fast rotor.  Settings are held as
+ *  arrays indexed by slot, as CompiledMachine.setAll takes them, with 0
+ *  for the reflector.  Searches use the numbering to divide the
+ *  settings into ranges, and step through a range with next, which
+ *  allocates nothing.
+ *  @author AldrinSembrana
+ */
+class SettingSpace {
+
+    /** The settings of machines with NUMSLOTS slots and alphabet
+     *  ALPHA. */
+    SettingSpace(Alphabet alpha, int numSlots) {
+        _alphabet = alpha;
+        _size = alpha.size();
+        _numSlots = numSlots;
+        long count = 1;
+        for (int k = 1; k < numSlots; k += 1) {
+            if (count > Long.MAX_VALUE / _size) {
+                throw error("too many settings to search");
+            }
+            count *= _size;
+        }
+        _count = count;
+    }
+
+    /** Return the number of settings. */
+    long count() {
+        return _count;
+    }
+
+    /** Return the setting numbered INDEX. */
+    int[] positions(long index) {
+        int[] positions = new int[_numSlots];
+        for (int k = _numSlots - 1; k >= 1; k -= 1) {
+            positions[k] = (int) (index % _size);
+            index /= _size;
+        }
+        return positions;
+    }
+
+    /** Change POSITIONS to the setting numbered one more than it (or to
+     *  the first setting if it is the last).  Returns the leftmost slot
+     *  whose setting changed. */
+    int next(int[] positions) {
+        int k;
+        for (k = _numSlots - 1; k > 1 && positions[k] == _size - 1;
+             k -= 1) {
+            positions[k] = 0;
+        }
+        positions[k] = positions[k] == _size - 1 ? 0 : positions[k] + 1;
+        return k;
+    }
+
+    /** Return POSITIONS in the format accepted by Machine.setRotors. */
+    String toString(int[] positions) {
+        char[] setting = new char[_numSlots - 1];
+        for (int k = 1; k < _numSlots; k += 1) {
+            setting[k - 1] = _alphabet.toChar(positions[k]);
+        }
+        return new String(setting);
+    }
+
+    /** Return the setting numbered INDEX in the format accepted by
+     *  Machine.setRotors. */
+    String toString(long index) {
+        return toString(positions(index));
+    }
+
+    /** The alphabet. */
+    private final Alphabet _alphabet;
+
+    /** Size of the alphabet. */
+    private final int _size;
+
+    /** Number of slots. */
+    private final int _numSlots;
+
+    /** Number of settings. */
+    private final long _count;
+}
@@ -0,0 +1,160 @@
+package enigma;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+/** The suite of all JUnit tests for CharSource, GroupWriter and the
+ *  file streams used with them.
+ *  @author AldrinSembrana
+ */
+public class StreamTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return everything read from a CharSource on the UTF-8 encoding of
+     *  TEXT with a buffer of SIZE bytes. */
+    private static String readAll(String text, int size) {
+        CharSource source = new CharSource(
+            new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)),
+            StandardCharsets.UTF_8, size);
+        StringBuilder result = new StringBuilder();
+        for (int c = source.read(); c >= 0; c = source.read()) {
+            result.append((char) c);
+        }
+        return result.toString();
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testLineEnds() {
+        assertEquals("A\nB\nC\nD\n\nE", readAll("A\r\nB\rC\nD\u2028\r\nE", 16));
+        assertEquals("", readAll("", 16));
+    }
+
+    @Test
+    public void testNonAscii() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 500; i += 1) {
+            text.append("AB\u00e9\u4e2d\r");
+        }
+        String expected = text.toString().replace('\r', '\n');
+        assertEquals(expected, readAll(text.toString(), 16));
+        assertEquals(expected, readAll(text.toString(), 17));
+        assertEquals(expected, readAll(text.toString(), 1 << 16));
+    }
+
+    @Test
+    public void testGroups() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GroupWriter writer =
+            new GroupWriter(out, StandardCharsets.UTF_8, 64);
+        String nl = System.lineSeparator();
+        StringBuilder expected = new StringBuilder();
+        for (int len = 0; len < 40; len += 1) {
+            for (int i = 0; i < len; i += 1) {
+                char c = i % 3 == 0 ? '\u00e9' : (char) ('A' + i % 26);
+                writer.write(c);
+                expected.append(c);
+                if (i % 5 == 4) {
+                    expected.append(' ');
+                }
+            }
+            writer.endLine();
+            expected.append(nl);
+        }
+        char[] buf = "ABCDEFGHIJKL".toCharArray();
+        writer.write(buf, 2, 7);
+        writer.endLine();
+        expected.append("CDEFG HI").append(nl);
+        writer.flush();
+        assertEquals(expected.toString(),
+                     new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testMappedFiles() throws IOException {
+        byte[] data = new byte[10000];
+        new Random(15).nextBytes(data);
+        Path file = Files.createTempFile("enigma", ".txt");
+        try {
+            FileChannel channel =
+                FileChannel.open(file, StandardOpenOption.WRITE);
+            GroupWriter writer =
+                new GroupWriter(channel, StandardCharsets.UTF_8, 333);
+            writer.write(Arrays.copyOfRange(data, 0, 5000));
+            writer.write(Arrays.copyOfRange(data, 5000, 5100));
+            writer.write(Arrays.copyOfRange(data, 5100, data.length));
+            writer.flush();
+            channel.close();
+            assertArrayEquals(data, Files.readAllBytes(file));
+
+            InputStream in = new MappedInput(file, 1000);
+            byte[] copy = new byte[data.length];
+            int n = 0;
+            for (int k; (k = in.read(copy, n, 777)) > 0; n += k) {
+                assertEquals(data.length - n - k, in.available());
+            }
+            assertEquals(data.length, n);
+            assertEquals(-1, in.read());
+            in.close();
+            assertArrayEquals(data, copy);
+            Arrays.fill(copy, (byte) 0);
+            in = new MappedInput(file, 999);
+            for (int i = 0; i < copy.length; i += 1) {
+                copy[i] = (byte) in.read();
+            }
+            assertEquals(-1, in.read(copy, 0, 1));
+            in.close();
+            assertArrayEquals(data, copy);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testMappedNonAscii() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 300; i += 1) {
+            text.append("AB\u00e9\u4e2d\r\n");
+        }
+        text.append("\u00e9");
+        String expected = text.toString().replace("\r\n", "\n");
+        Path file = Files.createTempFile("enigma", ".txt");
+        try {
+            Files.write(file,
+                        text.toString().getBytes(StandardCharsets.UTF_8));
+            for (int window = 16; window < 24; window += 1) {
+                MappedInput in = new MappedInput(file, window);
+                CharSource source =
+                    new CharSource(in, StandardCharsets.UTF_8, 16);
+                StringBuilder result = new StringBuilder();
+                for (int c = source.read(); c >= 0; c = source.read()) {
+                    result.append((char) c);
+                }
+                in.close();
+                assertEquals(expected, result.toString());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
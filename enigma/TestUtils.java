@@ -1,6 +1,8 @@
 package enigma;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Random;
 
 /** Utility definitions for use in unit tests.
  *  @author P. N. Hilfinger
@@ -126,4 +128,68 @@ class TestUtils {
         NAVALZ_MAP.put("Gamma", "EGTPLBOVFSINCUJZDXMRQAYWHK");
     }
 
+    /** Return the naval rotors in their A setting, with their usual
+     *  notches. */
+    static ArrayList<Rotor> navalRotors() {
+        ArrayList<Rotor> rotors = new ArrayList<>();
+        String[] names = { "I", "II", "III", "IV", "V", "VI", "VII", "VIII" };
+        String[] notches = { "Q", "E", "V", "J", "Z", "ZM", "ZM", "ZM" };
+        for (int i = 0; i < names.length; i += 1) {
+            rotors.add(new MovingRotor(names[i],
+                new Permutation(NAVALA.get(names[i]), UPPER), notches[i]));
+        }
+        rotors.add(new FixedRotor("Beta",
+                       new Permutation(NAVALA.get("Beta"), UPPER)));
+        rotors.add(new FixedRotor("Gamma",
+                       new Permutation(NAVALA.get("Gamma"), UPPER)));
+        rotors.add(new Reflector("B",
+                       new Permutation(NAVALA.get("B"), UPPER)));
+        rotors.add(new Reflector("C",
+                       new Permutation(NAVALA.get("C"), UPPER)));
+        return rotors;
+    }
+
+    /** Return a 5-slot naval machine with rotors ROTORS, setting
+     *  SETTING and plugboard PLUGBOARD. */
+    static Machine navalMachine(String[] rotors, String setting,
+                                String plugboard) {
+        Machine mach = new Machine(UPPER, 5, 3, navalRotors());
+        mach.insertRotors(rotors);
+        mach.setRotors(setting);
+        mach.setPlugboard(new Permutation(plugboard, UPPER));
+        return mach;
+    }
+
+    /** Return a random string of LEN letters from ALPHA, using RAND. */
+    static String randomText(String alpha, int len, Random rand) {
+        char[] text = new char[len];
+        for (int i = 0; i < len; i += 1) {
+            text[i] = alpha.charAt(rand.nextInt(alpha.length()));
+        }
+        return new String(text);
+    }
+
+    /** A configuration of the naval machine with the rotors of the
+     *  Carroll example. */
+    static final String NAVAL_CONFIG =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZ\n5 3\n"
+        + "I MQ (AELTPHQXRU) (BKNW) (CMOY) (DFG) (IV) (JZ) (S)\n"
+        + "III MV (ABDHPEJT) (CFLVMZOYQIRWUKXSG) (N)\n"
+        + "IV MJ (AEPLIYWCOXMRFZBSTGJQNH) (DV) (KU)\n"
+        + "Beta N (ALBEVFCYODJWUGNMQTZSKPR) (HIX)\n"
+        + "B R (AE) (BN) (CK) (DQ) (FU) (GY) (HW) (IJ) (LO) (MP)\n"
+        + "     (RX) (SZ) (TV)\n";
+
+    /** A passage of English in upper case, for statistics. */
+    static final String HIAWATHA =
+        "FROM HIS SHOULDER HIAWATHA TOOK THE CAMERA OF ROSEWOOD "
+        + "MADE OF SLIDING FOLDING ROSEWOOD NEATLY PUT IT ALL TOGETHER "
+        + "IN ITS CASE IT LAY COMPACTLY FOLDED INTO NEARLY NOTHING "
+        + "BUT HE OPENED OUT THE HINGES PUSHED AND PULLED THE JOINTS "
+        + "AND HINGES TILL IT LOOKED ALL SQUARES AND OBLONGS "
+        + "LIKE A COMPLICATED FIGURE IN THE SECOND BOOK OF EUCLID "
+        + "THIS HE PERCHED UPON A TRIPOD CROUCHED BENEATH ITS DUSKY "
+        + "COVER STRETCHED HIS HAND ENFORCING SILENCE SAID MAKE NOT "
+        + "THE SLIGHTEST MOTION";
+
 }
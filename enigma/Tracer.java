@@ -0,0 +1,37 @@
+package enigma;
+
+/** A listener for the stages of each conversion a Machine performs.
+ *  A Machine reports to its Tracer only when it has one other than
+ *  NONE, so an untraced machine pays nothing for the facility.
+ *  @author AldrinSembrana
+ */
+interface Tracer {
+
+    /** Called before converting character index C, after advancing,
+     *  with the settings of the rotors in POSITIONS (indexed by slot, so
+     *  POSITIONS[0] is the reflector's).  POSITIONS may be changed by the
+     *  machine after this returns. */
+    void start(int[] positions, int c);
+
+    /** Called with the character index C produced by each successive
+     *  stage: the plugboard, then each rotor. */
+    void stage(int c);
+
+    /** Called with the final result C of the conversion. */
+    void finish(int c);
+
+    /** A Tracer that ignores everything. */
+    Tracer NONE = new Tracer() {
+        @Override
+        public void start(int[] positions, int c) {
+        }
+
+        @Override
+        public void stage(int c) {
+        }
+
+        @Override
+        public void finish(int c) {
+        }
+    };
+}
@@ -0,0 +1,151 @@
+package enigma;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for Tracers.
+ *  @author AldrinSembrana
+ */
+public class TracerTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    private static final String[] ROTORS1 = { "B", "Beta", "III", "IV", "I" };
+
+    /** A Tracer that records its events, in the encoding of
+     *  RingTracer. */
+    private static class Recorder implements Tracer {
+        @Override
+        public void start(int[] positions, int c) {
+            for (int i = 1; i < positions.length; i += 1) {
+                events.add(positions[i]);
+            }
+            events.add((RingTracer.INPUT << 24) | c);
+        }
+
+        @Override
+        public void stage(int c) {
+            events.add((RingTracer.STAGE << 24) | c);
+        }
+
+        @Override
+        public void finish(int c) {
+            events.add((RingTracer.FINISH << 24) | c);
+        }
+
+        /** The events so far. */
+        final ArrayList<Integer> events = new ArrayList<>();
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testTextTrace() {
+        Machine mach = navalMachine(ROTORS1, "AXLE", "(YF) (HZ)");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RingTracer tracer = new RingTracer(UPPER, out);
+        mach.setTracer(tracer);
+        assertEquals("Z", mach.convert("Y"));
+        tracer.close();
+        String nl = System.lineSeparator();
+        assertEquals("[AXLF] Y -> F -> I -> V -> J -> W -> H -> X -> Z"
+                     + " -> J -> H -> Z" + nl, out.toString());
+    }
+
+    @Test
+    public void testTracingPreservesResults() {
+        Random rand = new Random(12);
+        String msg = randomText(UPPER_STRING, 5000, rand);
+        Machine plain = navalMachine(ROTORS1, "QEVZ", "(AB) (CD)");
+        Machine traced = navalMachine(ROTORS1, "QEVZ", "(AB) (CD)");
+        Recorder recorder = new Recorder();
+        traced.setTracer(recorder);
+        assertEquals(plain.convert(msg), traced.convert(msg));
+        assertEquals(msg.length() * 16, recorder.events.size());
+        traced.setTracer(Tracer.NONE);
+        assertEquals(plain.convert(msg), traced.convert(msg));
+        assertEquals(msg.length() * 16, recorder.events.size());
+    }
+
+    @Test
+    public void testBinaryTraceSmallRing() throws IOException {
+        Random rand = new Random(13);
+        String msg = randomText(UPPER_STRING, 3000, rand);
+        Machine mach = navalMachine(ROTORS1, "AAAA", "");
+        Recorder recorder = new Recorder();
+        mach.setTracer(recorder);
+        mach.convert(msg);
+
+        mach.setRotors("AAAA");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RingTracer tracer = new RingTracer(UPPER, out, true, 7);
+        mach.setTracer(tracer);
+        mach.convert(msg);
+        tracer.close();
+        byte[] bytes = out.toByteArray();
+        assertEquals(recorder.events.size() * 4, bytes.length);
+        for (int i = 0; i < recorder.events.size(); i += 1) {
+            int event = ((bytes[4 * i] & 0xff) << 24)
+                | ((bytes[4 * i + 1] & 0xff) << 16)
+                | ((bytes[4 * i + 2] & 0xff) << 8)
+                | (bytes[4 * i + 3] & 0xff);
+            assertEquals((int) recorder.events.get(i), event);
+        }
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testWriteFailure() {
+        OutputStream broken = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("broken");
+            }
+        };
+        Machine mach = navalMachine(ROTORS1, "AAAA", "");
+        RingTracer tracer = new RingTracer(UPPER, broken, false, 16);
+        mach.setTracer(tracer);
+        mach.convert(randomText(UPPER_STRING, 100, new Random(14)));
+        tracer.close();
+    }
+
+    @Test
+    public void testOutsideAlphabet() {
+        Machine plain = navalMachine(ROTORS1, "AXLE", "(YF) (HZ)");
+        Machine mach = navalMachine(ROTORS1, "AXLE", "(YF) (HZ)");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RingTracer tracer = new RingTracer(UPPER, out, false, 16);
+        mach.setTracer(tracer);
+        String msg = "y" + randomText(UPPER_STRING + "?", 10000,
+                                      new Random(15));
+        assertEquals(plain.convert(msg), mach.convert(msg));
+        tracer.close();
+        assertTrue(out.toString().startsWith("[AXLF] Z -> H -> "));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testBadEventReleasesProducer() {
+        RingTracer tracer =
+            new RingTracer(new Alphabet("ABC"), new ByteArrayOutputStream(),
+                           false, 16);
+        tracer.start(new int[] { 0, 1 }, 25);
+        for (int i = 0; i < 10000; i += 1) {
+            tracer.stage(1);
+        }
+        tracer.finish(1);
+        tracer.close();
+    }
+}
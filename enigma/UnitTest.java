@@ -14,9 +14,27 @@ public class UnitTest {
             System.exit(textui.runClasses(PermutationTest.class,
                     MovingRotorTest.class));
         }
-        System.exit(textui.runClasses(PermutationTest.class,
+        System.exit(textui.runClasses(AlphabetTest.class,
+                PermutationTest.class,
+                RotorTest.class,
                 MovingRotorTest.class,
-                MachineTest.class));
+                MachineTest.class,
+                CompiledMachineTest.class,
+                OdometerTest.class,
+                KeystreamTest.class,
+                TracerTest.class,
+                StreamTest.class,
+                CatalogImageTest.class,
+                EnigmaServerTest.class,
+                BatchRunnerTest.class,
+                EnigmaMachineTest.class,
+                EnigmaFilterTest.class,
+                CribSearchTest.class,
+                RotorOrderSearchTest.class,
+                BombeSearchTest.class,
+                PlugboardSolverTest.class,
+                NgramStoreTest.class,
+                MainTest.class));
     }
 
 }